@@ -0,0 +1,97 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * side table for attaching data to enum constants without any mixin, backed by a flat array indexed by {@link Enum#ordinal()}
+ * <p>the array grows when data is set for a constant that has been added after the last write, so constants added later on are supported just like existing ones,
+ * constants without any data read the default value
+ * <p>reads are a single volatile load and an array access, so they never allocate and are fine for hot paths,
+ * writes copy the array and are meant for setup, like right after a new constant has been created
+ *
+ * @param <E> type of enum constant
+ * @param <V> type of data
+ */
+public final class EnumExtensionData<E extends Enum<E>, V> {
+    private final Class<E> enumClazz;
+    @Nullable
+    private final V defaultValue;
+    /**
+     * data indexed by ordinal, never modified in place, so readers always see a fully written array
+     */
+    private volatile Object[] values = new Object[0];
+
+    private EnumExtensionData(Class<E> enumClazz, @Nullable V defaultValue) {
+        this.enumClazz = enumClazz;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @param enumClazz the enum class
+     * @param <E>       type of enum constant
+     * @param <V>       type of data
+     * @return a new side table reading <code>null</code> for constants without data
+     */
+    public static <E extends Enum<E>, V> EnumExtensionData<E, V> create(Class<E> enumClazz) {
+        return create(enumClazz, null);
+    }
+
+    /**
+     * @param enumClazz    the enum class
+     * @param defaultValue value for constants without data
+     * @param <E>          type of enum constant
+     * @param <V>          type of data
+     * @return a new side table
+     */
+    public static <E extends Enum<E>, V> EnumExtensionData<E, V> create(Class<E> enumClazz, @Nullable V defaultValue) {
+        Objects.requireNonNull(enumClazz, "enum class is null");
+        return new EnumExtensionData<>(enumClazz, defaultValue);
+    }
+
+    /**
+     * @param enumConstant the enum constant
+     * @return data for the enum constant, or the default value if none has been set
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public V get(E enumConstant) {
+        Object[] values = this.values;
+        int ordinal = enumConstant.ordinal();
+        if (ordinal < values.length) {
+            Object value = values[ordinal];
+            if (value != null) {
+                return (V) value;
+            }
+        }
+        return this.defaultValue;
+    }
+
+    /**
+     * @param enumConstant the enum constant
+     * @return has data been set for the enum constant
+     */
+    public boolean contains(E enumConstant) {
+        Object[] values = this.values;
+        int ordinal = enumConstant.ordinal();
+        return ordinal < values.length && values[ordinal] != null;
+    }
+
+    /**
+     * set data for an enum constant, growing the side table if the constant is newer than all constants with data so far
+     *
+     * @param enumConstant the enum constant
+     * @param value        data for the enum constant, <code>null</code> to remove the data, so the default value is read again
+     */
+    public synchronized void set(E enumConstant, @Nullable V value) {
+        if (enumConstant.getDeclaringClass() != this.enumClazz) {
+            throw new IllegalArgumentException("%s is not a constant of enum class %s".formatted(enumConstant, this.enumClazz.getName()));
+        }
+        int ordinal = enumConstant.ordinal();
+        Object[] values = Arrays.copyOf(this.values, Math.max(ordinal + 1, this.values.length));
+        values[ordinal] = value;
+        this.values = values;
+    }
+}
@@ -31,8 +31,7 @@ public class CommonAbstractionsImpl {
                 internalName
         );
         // some post-processing, not setting this will let the default behavior of VANISHABLE run
-        // need to cast to object for some reason as compilation fails otherwise under random circumstances
-        ExtensibleEnchantmentCategory.class.cast(enumConstant).extensibleenums$setCanApplyTo(canApplyTo);
+        ExtensibleEnchantmentCategory.CAN_APPLY_TO.set(enumConstant, canApplyTo);
         return enumConstant;
     }
 
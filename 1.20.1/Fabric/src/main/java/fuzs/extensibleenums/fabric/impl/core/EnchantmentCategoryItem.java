@@ -0,0 +1,20 @@
+package fuzs.extensibleenums.fabric.impl.core;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * implemented on {@link net.minecraft.world.item.Item} via mixin, holds the cached results of all custom {@link net.minecraft.world.item.enchantment.EnchantmentCategory} predicates for the item
+ */
+public interface EnchantmentCategoryItem {
+
+    /**
+     * @return bits indexed by enum constant ordinal, <code>null</code> when nothing has been cached for the item
+     */
+    @Nullable
+    long[] extensibleenums$getEnchantmentCategories();
+
+    /**
+     * @param enchantmentCategories bits indexed by enum constant ordinal
+     */
+    void extensibleenums$setEnchantmentCategories(long[] enchantmentCategories);
+}
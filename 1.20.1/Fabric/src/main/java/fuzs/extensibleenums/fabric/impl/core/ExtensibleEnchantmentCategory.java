@@ -1,17 +1,79 @@
 package fuzs.extensibleenums.fabric.impl.core;
 
+import fuzs.extensibleenums.api.v2.core.EnumExtensionData;
+import fuzs.extensibleenums.impl.ExtensibleEnums;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.item.Item;
+import net.minecraft.world.item.enchantment.EnchantmentCategory;
 
 import java.util.function.Predicate;
 
 /**
  * allows {@link net.minecraft.world.item.enchantment.EnchantmentCategory} to be extended, since the enum is abstract, and we cannot simply create new enum constants
  */
-public interface ExtensibleEnchantmentCategory {
+public final class ExtensibleEnchantmentCategory {
+    /**
+     * custom behavior per added enum constant, all other constants keep their own implementation
+     */
+    public static final EnumExtensionData<EnchantmentCategory, Predicate<Item>> CAN_APPLY_TO = EnumExtensionData.create(EnchantmentCategory.class);
+    /**
+     * opt-in via <code>-Dextensibleenums.cacheEnchantmentCategories=true</code>, evaluates all custom predicates once per item when the item registry is frozen and whenever item tags are bound,
+     * so predicates must only depend on the item and its tags
+     */
+    public static final boolean CACHE_ENCHANTMENT_CATEGORIES = Boolean.getBoolean(ExtensibleEnums.MOD_ID + ".cacheEnchantmentCategories");
+    /**
+     * number of enum constants covered by the cached bits on every item, constants added afterward always run their predicate
+     */
+    private static volatile int cachedCategories;
+
+    private ExtensibleEnchantmentCategory() {
+        // NO-OP
+    }
+
+    /**
+     * test a custom enum constant, a single bit test when the result has been cached for the item
+     *
+     * @param enchantmentCategory the custom enum constant
+     * @param canApplyTo          predicate set for the enum constant
+     * @param item                the item to test
+     * @return can enchantments of the category be applied to the item
+     */
+    public static boolean canEnchant(EnchantmentCategory enchantmentCategory, Predicate<Item> canApplyTo, Item item) {
+        int ordinal = enchantmentCategory.ordinal();
+        if (ordinal < cachedCategories) {
+            long[] enchantmentCategories = ((EnchantmentCategoryItem) item).extensibleenums$getEnchantmentCategories();
+            if (enchantmentCategories != null) {
+                return (enchantmentCategories[ordinal >>> 6] & (1L << ordinal)) != 0L;
+            }
+        }
+        return canApplyTo.test(item);
+    }
 
     /**
-     * allow for setting custom behavior
-     * @param canApplyTo which item this type can be applied to
+     * evaluate all custom predicates for every registered item and store the results as bits indexed by ordinal on the item
+     * <p>items not in the registry have no bits, and run the predicates directly, just like when caching is disabled
      */
-    void extensibleenums$setCanApplyTo(Predicate<Item> canApplyTo);
+    public static synchronized void cacheEnchantmentCategories() {
+        if (!CACHE_ENCHANTMENT_CATEGORIES) return;
+        EnchantmentCategory[] enchantmentCategories = EnchantmentCategory.values();
+        // stop using any old bits while they are replaced, in case predicates now throw
+        cachedCategories = 0;
+        try {
+            for (Item item : BuiltInRegistries.ITEM) {
+                long[] bits = new long[(enchantmentCategories.length + 63) >>> 6];
+                for (EnchantmentCategory enchantmentCategory : enchantmentCategories) {
+                    Predicate<Item> canApplyTo = CAN_APPLY_TO.get(enchantmentCategory);
+                    if (canApplyTo != null && canApplyTo.test(item)) {
+                        int ordinal = enchantmentCategory.ordinal();
+                        bits[ordinal >>> 6] |= 1L << ordinal;
+                    }
+                }
+                ((EnchantmentCategoryItem) item).extensibleenums$setEnchantmentCategories(bits);
+            }
+        } catch (RuntimeException e) {
+            ExtensibleEnums.LOGGER.warn("Failed to cache enchantment categories, evaluating predicates directly instead", e);
+            return;
+        }
+        cachedCategories = enchantmentCategories.length;
+    }
 }
@@ -2,11 +2,11 @@ package fuzs.extensibleenums.fabric.mixin;
 
 import fuzs.extensibleenums.fabric.impl.core.ExtensibleEnchantmentCategory;
 import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Vanishable;
+import net.minecraft.world.item.enchantment.EnchantmentCategory;
+import net.minecraft.world.level.block.Block;
 import org.spongepowered.asm.mixin.Mixin;
-import org.spongepowered.asm.mixin.Unique;
-import org.spongepowered.asm.mixin.injection.At;
-import org.spongepowered.asm.mixin.injection.Inject;
-import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import org.spongepowered.asm.mixin.Overwrite;
 
 import java.util.function.Predicate;
 
@@ -14,19 +14,20 @@ import java.util.function.Predicate;
 // on yarn mappings this is $6 instead which also goes for the intermediary (?) name
 // this must match the enum value used in ExtensibleEnchantmentCategory
 @Mixin(targets = "net.minecraft.world.item.enchantment.EnchantmentCategory$14")
-abstract class EnchantmentCategoryFabricMixin implements ExtensibleEnchantmentCategory {
-    @Unique
-    private Predicate<Item> extensibleenums$canApplyTo;
+abstract class EnchantmentCategoryFabricMixin {
 
-    @Override
-    public void extensibleenums$setCanApplyTo(Predicate<Item> canApplyTo) {
-        this.extensibleenums$canApplyTo = canApplyTo;
-    }
-
-    @Inject(method = "canEnchant(Lnet/minecraft/world/item/Item;)Z", at = @At("HEAD"), cancellable = true)
-    public void canEnchant(Item item, CallbackInfoReturnable<Boolean> callbackInfo) {
-        if (this.extensibleenums$canApplyTo != null) {
-            callbackInfo.setReturnValue(this.extensibleenums$canApplyTo.test(item));
+    /**
+     * @author Fuzs
+     * @reason this runs for every enchantment in tight loops, a cancellable injector would allocate a callback and box the result on every call
+     */
+    @Overwrite
+    public boolean canEnchant(Item item) {
+        Predicate<Item> canApplyTo = ExtensibleEnchantmentCategory.CAN_APPLY_TO.get((EnchantmentCategory) (Object) this);
+        if (canApplyTo != null) {
+            return ExtensibleEnchantmentCategory.canEnchant((EnchantmentCategory) (Object) this, canApplyTo, item);
+        } else {
+            // vanilla implementation for VANISHABLE
+            return item instanceof Vanishable || Block.byItem(item) instanceof Vanishable || EnchantmentCategory.BREAKABLE.canEnchant(item);
         }
     }
 }
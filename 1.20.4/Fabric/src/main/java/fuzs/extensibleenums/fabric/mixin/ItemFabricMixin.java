@@ -0,0 +1,24 @@
+package fuzs.extensibleenums.fabric.mixin;
+
+import fuzs.extensibleenums.fabric.impl.core.EnchantmentCategoryItem;
+import net.minecraft.world.item.Item;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(Item.class)
+abstract class ItemFabricMixin implements EnchantmentCategoryItem {
+    @Unique
+    @Nullable
+    private volatile long[] extensibleenums$enchantmentCategories;
+
+    @Override
+    public long[] extensibleenums$getEnchantmentCategories() {
+        return this.extensibleenums$enchantmentCategories;
+    }
+
+    @Override
+    public void extensibleenums$setEnchantmentCategories(long[] enchantmentCategories) {
+        this.extensibleenums$enchantmentCategories = enchantmentCategories;
+    }
+}
@@ -0,0 +1,40 @@
+package fuzs.extensibleenums.fabric.mixin;
+
+import fuzs.extensibleenums.fabric.impl.core.ExtensibleEnchantmentCategory;
+import net.minecraft.core.Holder;
+import net.minecraft.core.MappedRegistry;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.tags.TagKey;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.List;
+import java.util.Map;
+
+// Fabric Api is not available at compile time, so hook into vanilla directly, tags are bound here on the server after every reload and on the client when they are synced
+@Mixin(MappedRegistry.class)
+abstract class MappedRegistryFabricMixin<T> {
+
+    @Shadow
+    public abstract ResourceKey<? extends Registry<T>> key();
+
+    @Inject(method = "freeze", at = @At("TAIL"))
+    public void freeze(CallbackInfoReturnable<Registry<T>> callback) {
+        if (this.key() == Registries.ITEM) {
+            ExtensibleEnchantmentCategory.cacheEnchantmentCategories();
+        }
+    }
+
+    @Inject(method = "bindTags", at = @At("TAIL"))
+    public void bindTags(Map<TagKey<T>, List<Holder<T>>> tagMap, CallbackInfo callback) {
+        if (this.key() == Registries.ITEM) {
+            ExtensibleEnchantmentCategory.cacheEnchantmentCategories();
+        }
+    }
+}
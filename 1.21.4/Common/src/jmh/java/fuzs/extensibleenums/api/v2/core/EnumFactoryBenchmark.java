@@ -0,0 +1,98 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares creating a constant through a generated {@link EnumFactory} with the default path writing every field through unsafe
+ * <p>constants are only created, never added to the enum values, so every invocation does the same amount of work
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnumFactoryBenchmark {
+    private static final String ENUM_CONSTANT_NAME = "BENCHMARK";
+
+    private EnumConstructionPlan<BenchmarkEnum> plan;
+    private EnumAppender<BenchmarkEnum> unsafeAppender;
+    private EnumAppender<BenchmarkEnum> generatedAppender;
+    private int ordinal;
+
+    @Setup
+    public void setup() {
+        this.plan = EnumConstructionPlan.of(BenchmarkEnum.class);
+        this.unsafeAppender = createEnumAppender(false);
+        this.generatedAppender = createEnumAppender(true);
+        this.ordinal = BenchmarkEnum.values().length;
+    }
+
+    private static EnumAppender<BenchmarkEnum> createEnumAppender(boolean generatedFactory) {
+        EnumAppender.Builder<BenchmarkEnum> builder = EnumAppender.builder(BenchmarkEnum.class)
+                .field(String.class)
+                .field(int.class)
+                .field(1, int.class)
+                .field(long.class)
+                .field(float.class)
+                .field(double.class)
+                .field(boolean.class);
+        if (generatedFactory) {
+            builder.generatedFactory();
+        }
+        EnumAppender<BenchmarkEnum> enumAppender = builder.build();
+        enumAppender.buildEnumConstant(ENUM_CONSTANT_NAME)
+                .objectField(0, "benchmark")
+                .intField(1, 16)
+                .intField(2, 64)
+                .longField(3, 1024L)
+                .floatField(4, 0.5F)
+                .doubleField(5, 0.25)
+                .booleanField(6, true)
+                .add();
+        return enumAppender;
+    }
+
+    @Benchmark
+    public BenchmarkEnum unsafeSetters() throws Throwable {
+        return this.unsafeAppender.createEnumConstant(this.plan, ENUM_CONSTANT_NAME, this.ordinal);
+    }
+
+    @Benchmark
+    public BenchmarkEnum generatedFactory() throws Throwable {
+        return this.generatedAppender.createEnumConstant(this.plan, ENUM_CONSTANT_NAME, this.ordinal);
+    }
+
+    public enum BenchmarkEnum {
+        ORIGINAL("original", 1, 1, 1L, 1.0F, 1.0, false);
+
+        final String label;
+        final int minValue;
+        final int maxValue;
+        final long seed;
+        final float scale;
+        final double weight;
+        final boolean enabled;
+
+        BenchmarkEnum(String label, int minValue, int maxValue, long seed, float scale, double weight, boolean enabled) {
+            this.label = label;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.seed = seed;
+            this.scale = scale;
+            this.weight = weight;
+            this.enabled = enabled;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package fuzs.extensibleenums.api.v2;
 
+import fuzs.extensibleenums.api.v2.core.EnumRef;
 import fuzs.extensibleenums.impl.BuiltInEnumFactoriesImpl;
 import net.minecraft.ChatFormatting;
 import net.minecraft.resources.ResourceLocation;
@@ -10,6 +11,8 @@ import net.minecraft.world.entity.raid.Raid;
 import net.minecraft.world.entity.raid.Raider;
 import net.minecraft.world.item.Rarity;
 
+import java.util.function.Supplier;
+
 /**
  * Utility class for creating enum constants and adding them to the enum class.
  */
@@ -28,6 +31,17 @@ public interface BuiltInEnumFactories {
      */
     Rarity createRarity(ResourceLocation identifier, ChatFormatting color);
 
+    /**
+     * Reserve a new {@link Rarity} enum constant, which is only created when it is first used.
+     * <p>Unlike {@link #createRarity(ResourceLocation, ChatFormatting)} this does not initialize the enum class, and
+     * all reserved constants are added together.
+     *
+     * @param identifier name of enum constant
+     * @param color      chat color for item name
+     * @return lazy reference to the new enum constant
+     */
+    EnumRef<Rarity> reserveRarity(ResourceLocation identifier, ChatFormatting color);
+
     /**
      * Create a new {@link MobCategory} enum constant.
      *
@@ -41,6 +55,19 @@ public interface BuiltInEnumFactories {
      */
     MobCategory createMobCategory(ResourceLocation identifier, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance);
 
+    /**
+     * Reserve a new {@link MobCategory} enum constant, which is only created when it is first used.
+     *
+     * @param identifier           name of enum constant
+     * @param name                 name
+     * @param maxInstancesPerChunk entities of this category allowed in a chunk
+     * @param isFriendly           used for animals, the respawning cycle runs a lot slower
+     * @param isPersistent         can this type despawn again, not really used
+     * @param despawnDistance      distance from a player when despawning is possible
+     * @return lazy reference to the new enum constant
+     */
+    EnumRef<MobCategory> reserveMobCategory(ResourceLocation identifier, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance);
+
     /**
      * Create a new {@link Raid.RaiderType} enum constant.
      *
@@ -52,6 +79,19 @@ public interface BuiltInEnumFactories {
      */
     Raid.RaiderType createRaiderType(ResourceLocation identifier, EntityType<? extends Raider> entityType, int[] spawnsPerWaveBeforeBonus);
 
+    /**
+     * Reserve a new {@link Raid.RaiderType} enum constant, which is only created when it is first used.
+     * <p>The entity type is only requested at that point, so it may come from a registry entry that does not exist
+     * yet.
+     *
+     * @param identifier               name of enum constant
+     * @param entityType               raider entity type
+     * @param spawnsPerWaveBeforeBonus int array with amount of spawns per wave (wave is array index, starting at 1,
+     *                                 meaning index 0 is ignored)
+     * @return lazy reference to the new enum constant
+     */
+    EnumRef<Raid.RaiderType> reserveRaiderType(ResourceLocation identifier, Supplier<? extends EntityType<? extends Raider>> entityType, int[] spawnsPerWaveBeforeBonus);
+
     /**
      * Create a new {@link net.minecraft.world.entity.monster.SpellcasterIllager.IllagerSpell} enum constant.
      *
@@ -0,0 +1,47 @@
+package fuzs.extensibleenums.api.v2;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a new enum constant on a static final field, which is then created by code generated at compile time.
+ * <p>The annotation processor shipped with this library validates the declaration and generates a class named after
+ * the declaring class with an <code>EnumExtensions</code> suffix, containing a factory method for each annotated
+ * field. The factory method is named after the field and has one parameter for every enum field that is set:
+ * <pre>{@code
+ * public final class ExampleEnums {
+ *     @ExtendEnum(value = Rarity.class, fields = "color")
+ *     public static final Rarity EXAMPLEMOD_MYTHIC = ExampleEnumsEnumExtensions.EXAMPLEMOD_MYTHIC(ChatFormatting.LIGHT_PURPLE);
+ * }
+ * }</pre>
+ * <p>The field name is used as the name of the new enum constant, so it should include the mod id to avoid collisions.
+ * <p>Enum fields are resolved by their type and position among fields of the same type, just like
+ * {@link fuzs.extensibleenums.api.v2.core.EnumAppender.FieldAccess}, so the generated code keeps working when field
+ * names are remapped.
+ * <p>The generated factory method appends the constant right away, usually from the static initializer of the
+ * declaring class, which initializes the enum class at that point. It bypasses
+ * {@link fuzs.extensibleenums.api.v2.core.DeferredEnumExtensions} and
+ * {@link fuzs.extensibleenums.api.v2.core.EnumExtensionSession}, so the constant is not batched with constants from
+ * other mods, and switches are patched again for every single constant. It is not registered with
+ * {@link fuzs.extensibleenums.api.v2.ExtensibleEnumRegistry} either. Prefer
+ * {@link fuzs.extensibleenums.api.v2.BuiltInEnumFactories} or
+ * {@link fuzs.extensibleenums.api.v2.core.EnumExtensionSession#reserve} when the enum class should be left alone until
+ * the game initializes it.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface ExtendEnum {
+
+    /**
+     * @return the enum class to add the constant to
+     */
+    Class<? extends Enum<?>> value();
+
+    /**
+     * @return names of the enum instance fields to set, in the order of the generated factory method's parameters,
+     *         leave empty to set all instance fields in declaration order
+     */
+    String[] fields() default {};
+}
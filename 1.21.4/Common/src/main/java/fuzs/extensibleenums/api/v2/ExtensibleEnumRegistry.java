@@ -0,0 +1,46 @@
+package fuzs.extensibleenums.api.v2;
+
+import fuzs.extensibleenums.impl.ExtensibleEnumRegistryImpl;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lookups for enum constants created via {@link BuiltInEnumFactories}, e.g. for resolving them from configs or
+ * commands.
+ * <p>All lookups are backed by hash indexes and run in constant time.
+ */
+public interface ExtensibleEnumRegistry {
+    /**
+     * the instance
+     */
+    ExtensibleEnumRegistry INSTANCE = new ExtensibleEnumRegistryImpl();
+
+    /**
+     * Find an added enum constant by the identifier it was created with.
+     *
+     * @param enumClazz  the enum class
+     * @param identifier identifier the enum constant was created with
+     * @param <T>        type of enum
+     * @return the enum constant, or <code>null</code> if no enum constant has been added for the identifier
+     */
+    @Nullable <T extends Enum<T>> T getEnumConstant(Class<T> enumClazz, ResourceLocation identifier);
+
+    /**
+     * Find an added enum constant by its internal name, as returned from {@link Enum#name()}.
+     *
+     * @param enumClazz    the enum class
+     * @param internalName name of the enum constant
+     * @param <T>          type of enum
+     * @return the enum constant, or <code>null</code> if no enum constant has been added with the name
+     */
+    @Nullable <T extends Enum<T>> T getEnumConstant(Class<T> enumClazz, String internalName);
+
+    /**
+     * Find the identifier an added enum constant was created with.
+     * <p>The namespace of the identifier is the mod owning the enum constant.
+     *
+     * @param enumConstant the enum constant
+     * @return the identifier, or <code>null</code> for enum constants that have not been added via this library
+     */
+    @Nullable ResourceLocation getIdentifier(Enum<?> enumConstant);
+}
@@ -0,0 +1,82 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * handle for enum constants added via {@link EnumAppender#applyDeferred(Class[])} or {@link EnumExtensionSession#submit}, which only exist after the enum class has been initialized
+ *
+ * @param <T> type of enum constant
+ */
+public final class DeferredEnumConstants<T extends Enum<T>> {
+    private final Class<T> enumClazz;
+    private final List<String> enumConstantNames;
+    /**
+     * adds the constants when they are requested before that has happened on its own
+     */
+    private final Runnable committer;
+    @Nullable
+    private volatile List<T> enumConstants;
+
+    DeferredEnumConstants(Class<T> enumClazz, List<String> enumConstantNames) {
+        this(enumClazz, enumConstantNames, () -> DeferredEnumExtensions.applyPending(enumClazz));
+    }
+
+    DeferredEnumConstants(Class<T> enumClazz, List<String> enumConstantNames, Runnable committer) {
+        this.enumClazz = enumClazz;
+        this.enumConstantNames = enumConstantNames;
+        this.committer = committer;
+    }
+
+    /**
+     * called once the constants have been added, stays unresolved when any of them is missing
+     * <p>constants are looked up through the construction plan, as {@link Enum#valueOf(Class, String)} would fill the enum constant directory
+     */
+    void resolve() {
+        EnumConstructionPlan<T> plan = EnumConstructionPlan.of(this.enumClazz);
+        List<T> enumConstants = new ArrayList<>(this.enumConstantNames.size());
+        for (String enumConstantName : this.enumConstantNames) {
+            T enumConstant = plan.findConstant(enumConstantName);
+            if (enumConstant == null) return;
+            enumConstants.add(enumConstant);
+        }
+        this.enumConstants = Collections.unmodifiableList(enumConstants);
+    }
+
+    /**
+     * @return have the constants been added yet
+     */
+    public boolean isResolved() {
+        return this.enumConstants != null;
+    }
+
+    /**
+     * get all new constants, initializes the enum class and adds all pending constants if that has not happened yet
+     *
+     * @return the new enum constants in the order they were added to the appender
+     */
+    public List<T> getAll() {
+        List<T> enumConstants = this.enumConstants;
+        if (enumConstants == null) {
+            this.committer.run();
+            enumConstants = this.enumConstants;
+            if (enumConstants == null) throw new IllegalStateException("Failed to add %s to %s".formatted(this.enumConstantNames, this.enumClazz));
+        }
+        return enumConstants;
+    }
+
+    /**
+     * get a new constant, initializes the enum class and adds all pending constants if that has not happened yet
+     *
+     * @param enumConstantName name of the new constant
+     * @return the new enum constant
+     */
+    public T get(String enumConstantName) {
+        int index = this.enumConstantNames.indexOf(enumConstantName);
+        if (index == -1) throw new IllegalArgumentException("%s has not been added to %s".formatted(enumConstantName, this.enumClazz));
+        return this.getAll().get(index);
+    }
+}
@@ -0,0 +1,125 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * queues enum extensions until the enum class has been initialized by the game itself, so adding constants during mod construction
+ * no longer forces the enum class and everything its static initializer touches to be initialized early
+ * <p>extensions are applied right after the static initializer of the enum class has run, for this the enum class needs a hook calling {@link #onClassInitialized(Class)} at the end of <code>&lt;clinit&gt;</code>,
+ * this library provides such hooks for all enum classes supported by {@link fuzs.extensibleenums.api.v2.BuiltInEnumFactories}
+ * <p>for enum classes without a hook extensions stay queued until they are requested via {@link #applyPending(Class)}, which initializes the enum class if necessary
+ */
+public final class DeferredEnumExtensions {
+    /**
+     * queue state per enum class name
+     */
+    private static final Map<String, PendingExtensions> PENDING_EXTENSIONS = new ConcurrentHashMap<>();
+
+    private DeferredEnumExtensions() {
+        // NO-OP
+    }
+
+    /**
+     * run an extension once the enum class has been initialized, immediately if that has already happened
+     *
+     * @param enumClazz the enum class, loading it is fine, it must just not be initialized
+     * @param extension adds enum constants to <code>enumClazz</code>
+     */
+    public static void runWhenInitialized(Class<? extends Enum<?>> enumClazz, Runnable extension) {
+        PendingExtensions pendingExtensions = getPendingExtensions(enumClazz);
+        synchronized (pendingExtensions) {
+            if (!pendingExtensions.initialized) {
+                pendingExtensions.extensions.add(extension);
+                return;
+            }
+        }
+        extension.run();
+    }
+
+    /**
+     * called at the end of the static initializer of an enum class, runs all queued extensions
+     * <p>this runs while the class is still being initialized, so only the initializing thread can access it,
+     * other threads trying to use the enum class block until all extensions have been applied
+     *
+     * @param enumClazz the enum class
+     */
+    public static void onClassInitialized(Class<?> enumClazz) {
+        PendingExtensions pendingExtensions = getPendingExtensions(enumClazz);
+        synchronized (pendingExtensions) {
+            pendingExtensions.initialized = true;
+        }
+        pendingExtensions.runAll();
+    }
+
+    /**
+     * apply all queued extensions for an enum class, initializing the enum class if it has not been initialized yet
+     *
+     * @param enumClazz the enum class
+     */
+    public static void applyPending(Class<? extends Enum<?>> enumClazz) {
+        // never initialize while holding the queue monitor, the static initializer might need it for calling onClassInitialized
+        UnsafeExtensibleEnum.ensureInitialized(enumClazz);
+        onClassInitialized(enumClazz);
+    }
+
+    /**
+     * apply all queued extensions for all enum classes
+     */
+    @SuppressWarnings("unchecked")
+    public static void applyAllPending() {
+        for (PendingExtensions pendingExtensions : PENDING_EXTENSIONS.values()) {
+            applyPending((Class<? extends Enum<?>>) pendingExtensions.enumClazz);
+        }
+    }
+
+    /**
+     * @param enumClazz the enum class
+     * @return have extensions for the enum class been applied, or are they going to be applied right away
+     */
+    public static boolean isInitialized(Class<? extends Enum<?>> enumClazz) {
+        PendingExtensions pendingExtensions = PENDING_EXTENSIONS.get(enumClazz.getName());
+        if (pendingExtensions != null) {
+            synchronized (pendingExtensions) {
+                return pendingExtensions.initialized;
+            }
+        } else {
+            return false;
+        }
+    }
+
+    private static PendingExtensions getPendingExtensions(Class<?> enumClazz) {
+        return PENDING_EXTENSIONS.computeIfAbsent(enumClazz.getName(), (String key) -> new PendingExtensions(enumClazz));
+    }
+
+    /**
+     * extensions waiting for an enum class to be initialized
+     */
+    private static final class PendingExtensions {
+        private final Class<?> enumClazz;
+        private final List<Runnable> extensions = new ArrayList<>();
+        private boolean initialized;
+
+        private PendingExtensions(Class<?> enumClazz) {
+            this.enumClazz = enumClazz;
+        }
+
+        /**
+         * run all queued extensions in the order they were queued, outside of this monitor,
+         * as extensions take the append lock of the enum class which another thread might hold while queueing
+         */
+        private void runAll() {
+            while (true) {
+                List<Runnable> extensions;
+                synchronized (this) {
+                    if (this.extensions.isEmpty()) return;
+                    extensions = new ArrayList<>(this.extensions);
+                    this.extensions.clear();
+                }
+                extensions.forEach(Runnable::run);
+            }
+        }
+    }
+}
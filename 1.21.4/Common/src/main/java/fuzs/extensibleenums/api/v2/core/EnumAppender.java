@@ -1,15 +1,16 @@
 package fuzs.extensibleenums.api.v2.core;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -17,16 +18,11 @@ import java.util.stream.Stream;
  * somewhat similar to <a href="https://github.com/Chocohead/Fabric-ASM/blob/master/src/com/chocohead/mm/api/EnumAdder.java">EnumAdder.java</a>
  * main difference is this uses {@link sun.misc.Unsafe} instead of ASM
  * call {@link #applyTo} at the end, or nothing will be added!
+ * an appender itself must only be used from a single thread, while {@link #applyTo} is safe to call concurrently for the same enum class from different appenders
  *
  * @param <T> type of enum constant
  */
 public final class EnumAppender<T extends Enum<T>> {
-    /**
-     * map for correctly handling boxed and unboxed class types
-     * important to actually use the class type originally defined for the enum, not what we get from argument objects
-     */
-    private static final Map<Class<?>, Class<?>> PRIMITIVE_TYPES = ImmutableMap.<Class<?>, Class<?>>builder().put(Integer.class, int.class).put(Boolean.class, boolean.class).put(Byte.class, byte.class).put(Short.class, short.class).put(Character.class, char.class).put(Long.class, long.class).put(Float.class, float.class).put(Double.class, double.class).build();
-
     /**
      * the enum class we wish to append constant values to
      */
@@ -42,12 +38,35 @@ public final class EnumAppender<T extends Enum<T>> {
      * since we cannot look inside the constructor to find out what fields are actually set (there might be more fields in the enum than the constructor populates),
      * we can access all fields in the enum class using this, for setting our desired values
      * IMPORTANT: this needs to include all fields set in an enum's constructor, even those with default value (which are not passed when creating a new enum constant)
+     * the slots are shared between all appenders for the same enum class, so no reflection is required here
+     */
+    private final List<EnumConstructionPlan.FieldSlot> fieldSlots;
+    /**
+     * optional generated factory for creating new constants with straight-line code instead of writing every field separately
+     */
+    @Nullable
+    private final EnumFactory<T> enumFactory;
+    /**
+     * optional actual enum constructor, when present new constants are constructed properly instead of being allocated via unsafe,
+     * so field initializers run and no fields need to be described
+     * {@link #fieldSlots} then describe the constructor parameters
      */
-    private final List<Field> fields;
+    @Nullable
+    private final MethodHandle constructor;
+    /**
+     * optional constant all instance fields are copied from for new constants, only described fields are set afterward
+     */
+    @Nullable
+    private final T template;
+    /**
+     * all instance fields of {@link #enumConcreteClazz} for copying from {@link #template}, empty without a template
+     */
+    private final List<EnumConstructionPlan.FieldSlot> templateSlots;
     /**
      * map of all additions, will be applied when {@link #applyTo} is called
+     * insertion order is kept, so ordinals are assigned in the order constants have been added
      */
-    private final Map<String, Runnable> additions = Maps.newHashMap();
+    private final Map<String, ConstantBuilder<T>> additions = Maps.newLinkedHashMap();
 
     /**
      * @param enumClazz the enum class we wish to add a constant to
@@ -78,29 +97,36 @@ public final class EnumAppender<T extends Enum<T>> {
      * @param fields            fields we need to initialize
      */
     public EnumAppender(Class<T> enumClazz, Class<? extends T> enumConcreteClazz, List<FieldAccess> fields) {
-        this.enumClazz = enumClazz;
-        this.enumConcreteClazz = enumConcreteClazz;
-        this.fields = fields.stream().map((FieldAccess fieldAccess) -> {
-            return fieldAccess.getField(enumClazz);
-        }).toList();
+        this(enumClazz, enumConcreteClazz, fields, false, null, null);
     }
 
     /**
-     * helper method for handling boxed and unboxed classes of primitive types
-     *
-     * @param oClazz       class of the object we've received for enum construction
-     * @param fClazz       the actual type this value needs to have at the end
-     * @param boxedClazz   boxed class we want to check (e.g. <code>Integer.class</code>)
-     * @param unboxedClazz unboxed class (e.g. <code>int.class</code>)
-     * @return <code>fClazz</code> when there was a match, otherwise empty
-     */
-    private static Optional<Class<?>> findCommonType(Class<?> oClazz, Class<?> fClazz, Class<?> boxedClazz, Class<?> unboxedClazz) {
-        if (oClazz == boxedClazz || oClazz == unboxedClazz) {
-            if (fClazz == boxedClazz || fClazz == unboxedClazz) {
-                return Optional.of(fClazz);
+     * @param enumClazz         the enum class we wish to add a constant to
+     * @param enumConcreteClazz in case of <code>enumClazz</code> being abstract, this is an implementation of it (otherwise equal)
+     * @param fields            fields we need to initialize
+     * @param generateFactory   generate a dedicated factory class for creating new constants
+     * @param parameterTypes    parameter types for invoking the actual enum constructor instead of setting fields, excluding name and ordinal
+     * @param template          constant to copy all instance fields from for new constants
+     */
+    private EnumAppender(Class<T> enumClazz, Class<? extends T> enumConcreteClazz, List<FieldAccess> fields, boolean generateFactory, @Nullable List<Class<?>> parameterTypes, @Nullable T template) {
+        this.enumClazz = enumClazz;
+        this.enumConcreteClazz = enumConcreteClazz;
+        this.template = template;
+        EnumConstructionPlan<T> plan = EnumConstructionPlan.of(enumClazz);
+        if (parameterTypes != null) {
+            if (!fields.isEmpty() || generateFactory || template != null) {
+                throw new IllegalStateException("Invoking enum constructor cannot be combined with setting fields");
             }
+            this.fieldSlots = parameterTypes.stream().map(EnumConstructionPlan.FieldSlot::parameter).toList();
+            this.enumFactory = null;
+            this.constructor = plan.getConstructor(enumConcreteClazz, parameterTypes);
+            this.templateSlots = List.of();
+        } else {
+            this.fieldSlots = plan.getFieldSlots(fields);
+            this.enumFactory = generateFactory ? plan.getEnumFactory(enumConcreteClazz, this.fieldSlots, template) : null;
+            this.constructor = null;
+            this.templateSlots = template != null ? plan.getInstanceFieldSlots(enumConcreteClazz) : List.of();
         }
-        return Optional.empty();
     }
 
     /**
@@ -114,6 +140,17 @@ public final class EnumAppender<T extends Enum<T>> {
         return new EnumAppender<>(enumClazz);
     }
 
+    /**
+     * a builder for describing the fields of an enum without the limited amount of {@link #create} overloads
+     *
+     * @param enumClazz type of enum constant to construct
+     * @param <T>       type of enum
+     * @return a new builder for the appender
+     */
+    public static <T extends Enum<T>> Builder<T> builder(Class<T> enumClazz) {
+        return new Builder<>(enumClazz);
+    }
+
     /**
      * basic version with types, only works when no type has a duplicate, otherwise use one of the overloads below with ordinals (indices)
      *
@@ -263,70 +300,118 @@ public final class EnumAppender<T extends Enum<T>> {
      * @return this builder instance
      */
     public EnumAppender<T> addEnumConstant(String enumConstantName, Object... args) {
-        this.additions.put(enumConstantName, () -> this.add(enumConstantName, args));
-        return this;
+        // do this first so possible exceptions are raised before any new enum constant is created
+        this.testObjectTypes(args);
+        ConstantBuilder<T> constantBuilder = new ConstantBuilder<>(this, enumConstantName);
+        for (int i = 0; i < args.length; i++) {
+            EnumConstructionPlan.FieldSlot fieldSlot = this.fieldSlots.get(i);
+            if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+                constantBuilder.setBits(i, primitiveSlot.type().toBits(args[i]));
+            } else if (fieldSlot != null) {
+                constantBuilder.setObject(i, args[i]);
+            }
+        }
+        return constantBuilder.add();
+    }
+
+    /**
+     * adds a new enum constant with typed field values, avoiding boxing primitive arguments,
+     * the constant is not actually created/added until {@link #applyTo} is called
+     * <p>call {@link ConstantBuilder#add()} when done setting field values
+     *
+     * @param enumConstantName name of the new constant, it's a good practice to have your mod id somewhere in there to be able to find the origin of this value later
+     * @return a builder for the field values of the new constant
+     */
+    public ConstantBuilder<T> buildEnumConstant(String enumConstantName) {
+        return new ConstantBuilder<>(this, enumConstantName);
     }
 
     /**
-     * actually creates and adds the new enum constant
+     * actually creates the new enum constant, adding it to the enum values is handled by {@link #applyTo}
      *
      * @param enumConstantName name of the new constant
-     * @param args             arguments required for constructing a new enum value
+     * @param ordinal          ordinal of the new constant
+     * @param constantBuilder  field values for the new constant
+     * @return the new enum constant
+     *
+     * @throws Throwable something went wrong during unsafe operations
      */
-    private void add(String enumConstantName, Object... args) {
-        // do this first so possible exceptions are raised before new enum constant is created
-        Class<?>[] objectTypes = this.getObjectTypes(args);
-        T enumConstant;
-        try {
-            enumConstant = UnsafeExtensibleEnum.invokeEnumConstructor(this.enumClazz, this.enumConcreteClazz, enumConstantName);
-        } catch (Throwable e) {
-            throw new RuntimeException(e);
+    private T add(String enumConstantName, int ordinal, ConstantBuilder<T> constantBuilder) throws Throwable {
+        if (this.constructor != null) {
+            return this.enumClazz.cast((Object) this.constructor.invokeExact(enumConstantName, ordinal, constantBuilder.toArguments()));
+        } else if (this.enumFactory != null) {
+            return this.enumFactory.create(enumConstantName, ordinal, constantBuilder.primitiveValues, constantBuilder.objectValues);
         }
-        for (int i = 0; i < objectTypes.length; i++) {
-            Class<?> clazz = objectTypes[i];
-            Field field = this.fields.get(i);
-            if (clazz == null || field == null) continue;
-            Object arg = args[i];
-            if (clazz == int.class) {
-                UnsafeExtensibleEnum.setIntField(field, enumConstant, (int) arg);
-            } else if (clazz == boolean.class) {
-                UnsafeExtensibleEnum.setBooleanField(field, enumConstant, (boolean) arg);
-            } else if (clazz == byte.class) {
-                UnsafeExtensibleEnum.setByteField(field, enumConstant, (byte) arg);
-            } else if (clazz == short.class) {
-                UnsafeExtensibleEnum.setShortField(field, enumConstant, (short) arg);
-            } else if (clazz == char.class) {
-                UnsafeExtensibleEnum.setCharField(field, enumConstant, (char) arg);
-            } else if (clazz == long.class) {
-                UnsafeExtensibleEnum.setLongField(field, enumConstant, (long) arg);
-            } else if (clazz == float.class) {
-                UnsafeExtensibleEnum.setFloatField(field, enumConstant, (float) arg);
-            } else if (clazz == double.class) {
-                UnsafeExtensibleEnum.setDoubleField(field, enumConstant, (double) arg);
-            } else {
-                UnsafeExtensibleEnum.setObjectField(field, enumConstant, arg);
+        T enumConstant = UnsafeExtensibleEnum.invokeEnumConstructor(this.enumClazz, this.enumConcreteClazz, enumConstantName, ordinal);
+        if (this.template != null) {
+            for (EnumConstructionPlan.FieldSlot fieldSlot : this.templateSlots) {
+                fieldSlot.copy(this.template, enumConstant);
             }
         }
+        constantBuilder.applyTo(enumConstant);
+        return enumConstant;
+    }
+
+    /**
+     * create one of the new enum constants from {@link #applyTo}, also for batches combining multiple appenders
+     * must be called from {@link UnsafeExtensibleEnum#appendEnumConstants}
+     *
+     * @param plan             the plan for {@link #enumClazz}
+     * @param enumConstantName name of the new constant, must have been added to this appender
+     * @param ordinal          ordinal of the new constant
+     * @return the new enum constant
+     *
+     * @throws Throwable something went wrong during unsafe operations
+     */
+    T createEnumConstant(EnumConstructionPlan<T> plan, String enumConstantName, int ordinal) throws Throwable {
+        if (this.template != null) {
+            // new constants behave like the template in switch statements
+            plan.setSwitchFallback(ordinal, this.template);
+        }
+        return this.add(enumConstantName, ordinal, this.additions.get(enumConstantName));
+    }
+
+    /**
+     * @return the enum class constants are added to
+     */
+    Class<T> enumClazz() {
+        return this.enumClazz;
+    }
+
+    /**
+     * @return names of all constants added so far, in insertion order
+     */
+    Set<String> enumConstantNames() {
+        return Collections.unmodifiableSet(this.additions.keySet());
+    }
+
+    /**
+     * clear all additions once they have been applied
+     */
+    void clear() {
+        this.additions.clear();
     }
 
     /**
      * finalizes this builder, by constructing and adding the new enum values.
-     * also checks all additions were successful, and can update switch statements in other classes using this enum.
+     * all additions are added to the enum values in a single step, and can update switch statements in other classes using this enum.
      * may only be called once, the builder is cleared afterward
      *
      * @param switchUsers classes containing switch statements that need updating
      */
     public void applyTo(Class<?>... switchUsers) {
         if (this.additions.isEmpty()) throw new IllegalStateException("Invalid builder, no additions have been made!");
-        this.additions.values().forEach(Runnable::run);
-        // test that everything worked
-        this.additions.keySet().forEach(s -> {
-            if (Stream.of(this.enumClazz.getEnumConstants()).map(Enum::name).noneMatch(name -> name.equals(s))) {
-                throw new IllegalStateException("Failed to add enum value %s".formatted(s));
-            }
-        });
         try {
-            UnsafeExtensibleEnum.updateRelatedSwitchStatements(this.enumClazz, switchUsers);
+            EnumConstructionPlan<T> plan = EnumConstructionPlan.of(this.enumClazz);
+            UnsafeExtensibleEnum.appendEnumConstants(this.enumClazz, this.additions.keySet(), (String enumConstantName, int ordinal) -> {
+                return this.createEnumConstant(plan, enumConstantName, ordinal);
+            });
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            // new constants behave like the template in switch statements, otherwise they take the default branch
+            UnsafeExtensibleEnum.updateRelatedSwitchStatements(this.enumClazz, this.template != null ? this.template.ordinal() : -1, switchUsers);
         } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
@@ -334,40 +419,395 @@ public final class EnumAppender<T extends Enum<T>> {
         this.additions.clear();
     }
 
+    /**
+     * like {@link #applyTo(Class[])}, but the new values are only added once the enum class has been initialized by the game, see {@link DeferredEnumExtensions}
+     * this appender is handed over to whichever thread initializes the enum class, so it must not be used afterward
+     *
+     * @param switchUsers classes containing switch statements that need updating
+     * @return handle for the new values, resolving values early initializes the enum class and applies all extensions queued for it
+     */
+    public DeferredEnumConstants<T> applyDeferred(Class<?>... switchUsers) {
+        if (this.additions.isEmpty()) throw new IllegalStateException("Invalid builder, no additions have been made!");
+        DeferredEnumConstants<T> deferredEnumConstants = new DeferredEnumConstants<>(this.enumClazz, List.copyOf(this.additions.keySet()));
+        DeferredEnumExtensions.runWhenInitialized(this.enumClazz, () -> {
+            this.applyTo(switchUsers);
+            deferredEnumConstants.resolve();
+        });
+        return deferredEnumConstants;
+    }
+
     /**
      * check input <code>args</code> so that we have the correct amount, and types match
      * also handles boxed and unboxed classes of primitive types
      *
      * @param args input instances for enum construction
-     * @return final types for enum constant construction
      */
-    private Class<?>[] getObjectTypes(Object[] args) {
-        if (args.length != this.fields.size())
-            throw new IllegalArgumentException("Provided constructor args do not match enum description! Size %s does not match %s".formatted(args.length, this.fields.size()));
-        Class<?>[] argClasses = new Class[args.length];
-        $1:
+    private void testObjectTypes(Object[] args) {
+        if (args.length != this.fieldSlots.size())
+            throw new IllegalArgumentException("Provided constructor args do not match enum description! Size %s does not match %s".formatted(args.length, this.fieldSlots.size()));
         for (int i = 0; i < args.length; i++) {
-            Field field = this.fields.get(i);
-            Class<?> fClazz = field != null ? field.getType() : null;
-            if (args[i] == null || fClazz == null) {
-                argClasses[i] = fClazz;
-            } else {
-                Class<?> oClazz = args[i].getClass();
-                if (fClazz.isAssignableFrom(oClazz)) {
-                    argClasses[i] = fClazz;
+            EnumConstructionPlan.FieldSlot fieldSlot = this.fieldSlots.get(i);
+            if (fieldSlot != null && !fieldSlot.accepts(args[i])) {
+                throw new IllegalArgumentException("Class type mismatch between %s and %s".formatted(args[i] != null ? args[i].getClass() : null, fieldSlot.clazz()));
+            }
+        }
+    }
+
+    /**
+     * builder for the appender itself, allows for describing any number of fields
+     *
+     * @param <T> type of enum constant
+     */
+    public static final class Builder<T extends Enum<T>> {
+        /**
+         * the enum class we wish to append constant values to
+         */
+        private final Class<T> enumClazz;
+        /**
+         * concrete implementation for abstract enum classes
+         */
+        private Class<? extends T> enumConcreteClazz;
+        /**
+         * all fields described so far
+         */
+        private final ImmutableList.Builder<FieldAccess> fields = ImmutableList.builder();
+        /**
+         * the next ordinal per field type, used when no ordinal is provided
+         */
+        private final Map<Class<?>, Integer> ordinals = Maps.newHashMap();
+        /**
+         * generate a dedicated factory class for creating new constants
+         */
+        private boolean generateFactory;
+        /**
+         * parameter types for invoking the actual enum constructor
+         */
+        @Nullable
+        private List<Class<?>> parameterTypes;
+        /**
+         * constant to copy all instance fields from
+         */
+        @Nullable
+        private T template;
+
+        private Builder(Class<T> enumClazz) {
+            this.enumClazz = enumClazz;
+            this.enumConcreteClazz = enumClazz;
+        }
+
+        /**
+         * @param enumConcreteClazz in case of <code>enumClazz</code> being abstract, this is an implementation of it
+         * @return this builder instance
+         */
+        public Builder<T> concreteClass(Class<? extends T> enumConcreteClazz) {
+            this.enumConcreteClazz = enumConcreteClazz;
+            return this;
+        }
+
+        /**
+         * adds the next field of type <code>clazz</code>, the ordinal is counted up automatically for every type
+         *
+         * @param clazz the field type
+         * @return this builder instance
+         */
+        public Builder<T> field(Class<?> clazz) {
+            return this.field(this.ordinals.getOrDefault(clazz, 0), clazz);
+        }
+
+        /**
+         * adds a field of type <code>clazz</code> at a given ordinal, must be used when multiple fields have the same type
+         *
+         * @param ordinal ordinal of this field (like with mixins)
+         * @param clazz   the field type
+         * @return this builder instance
+         */
+        public Builder<T> field(int ordinal, Class<?> clazz) {
+            return this.field(new FieldAccess(ordinal, clazz));
+        }
+
+        /**
+         * adds a field of type <code>clazz</code> at a given ordinal which is skipped if it is not present
+         *
+         * @param ordinal ordinal of this field (like with mixins)
+         * @param clazz   the field type
+         * @return this builder instance
+         */
+        public Builder<T> optionalField(int ordinal, Class<?> clazz) {
+            return this.field(new FieldAccess(ordinal, clazz, true));
+        }
+
+        private Builder<T> field(FieldAccess fieldAccess) {
+            this.fields.add(fieldAccess);
+            this.ordinals.put(fieldAccess.clazz(), fieldAccess.ordinal() + 1);
+            return this;
+        }
+
+        /**
+         * opt in to generating a hidden factory class for the enum and field layout,
+         * which creates new constants with straight-line code the JIT can inline
+         * <p>the class is generated once and shared, so this is mostly worth it for enums receiving many constants
+         *
+         * @return this builder instance
+         */
+        public Builder<T> generatedFactory() {
+            this.generateFactory = true;
+            return this;
+        }
+
+        /**
+         * create new constants by invoking the actual private enum constructor instead of allocating them via unsafe,
+         * so all field initializers run and fields with default values do not need to be known
+         * <p>arguments passed for new constants are the constructor arguments then, no fields may be described
+         *
+         * @param parameterTypes constructor parameter types, excluding the implicit name and ordinal parameters
+         * @return this builder instance
+         */
+        public Builder<T> constructor(Class<?>... parameterTypes) {
+            this.parameterTypes = List.of(parameterTypes);
+            return this;
+        }
+
+        /**
+         * use an existing constant as a template for new constants, all instance fields are copied from it,
+         * so only fields that differ need to be described and set
+         * <p>the class of <code>template</code> is used as concrete class, so this also works for abstract enums
+         *
+         * @param template the constant to copy from
+         * @return this builder instance
+         */
+        @SuppressWarnings("unchecked")
+        public Builder<T> template(T template) {
+            this.template = template;
+            this.enumConcreteClazz = (Class<? extends T>) template.getClass();
+            return this;
+        }
+
+        /**
+         * @return the appender
+         */
+        public EnumAppender<T> build() {
+            return new EnumAppender<>(this.enumClazz, this.enumConcreteClazz, this.fields.build(), this.generateFactory, this.parameterTypes, this.template);
+        }
+    }
+
+    /**
+     * typed field values for a single new enum constant
+     * primitive values are stored as raw bits, so no boxing is involved when setting or applying them
+     * field indices are the positions fields have been described in for the appender
+     *
+     * @param <T> type of enum constant
+     */
+    public static final class ConstantBuilder<T extends Enum<T>> {
+        /**
+         * the appender this constant is added to
+         */
+        private final EnumAppender<T> enumAppender;
+        /**
+         * name of the new constant
+         */
+        private final String enumConstantName;
+        /**
+         * raw bits for all primitive fields
+         */
+        private final long[] primitiveValues;
+        /**
+         * values for all object fields
+         */
+        private final Object[] objectValues;
+        /**
+         * fields that have been assigned a value, others are left untouched
+         */
+        private final boolean[] assignedValues;
+
+        private ConstantBuilder(EnumAppender<T> enumAppender, String enumConstantName) {
+            this.enumAppender = enumAppender;
+            this.enumConstantName = enumConstantName;
+            int size = enumAppender.fieldSlots.size();
+            this.primitiveValues = new long[size];
+            this.objectValues = new Object[size];
+            this.assignedValues = new boolean[size];
+            if (enumAppender.template != null) {
+                // start out with the values from the template, so that all fields can always be written
+                for (int i = 0; i < size; i++) {
+                    EnumConstructionPlan.FieldSlot fieldSlot = enumAppender.fieldSlots.get(i);
+                    if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+                        this.primitiveValues[i] = primitiveSlot.getBits(enumAppender.template);
+                    } else if (fieldSlot instanceof EnumConstructionPlan.ObjectSlot objectSlot) {
+                        this.objectValues[i] = objectSlot.getObject(enumAppender.template);
+                    }
+                }
+            }
+        }
+
+        /**
+         * sets the value for an int field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> intField(int index, int value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.INT, value);
+        }
+
+        /**
+         * sets the value for a boolean field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> booleanField(int index, boolean value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.BOOLEAN, value ? 1L : 0L);
+        }
+
+        /**
+         * sets the value for a byte field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> byteField(int index, byte value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.BYTE, value);
+        }
+
+        /**
+         * sets the value for a short field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> shortField(int index, short value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.SHORT, value);
+        }
+
+        /**
+         * sets the value for a char field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> charField(int index, char value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.CHAR, value);
+        }
+
+        /**
+         * sets the value for a long field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> longField(int index, long value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.LONG, value);
+        }
+
+        /**
+         * sets the value for a float field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> floatField(int index, float value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.FLOAT, Float.floatToRawIntBits(value));
+        }
+
+        /**
+         * sets the value for a double field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> doubleField(int index, double value) {
+            return this.setBits(index, EnumConstructionPlan.PrimitiveType.DOUBLE, Double.doubleToRawLongBits(value));
+        }
+
+        /**
+         * sets the value for an object field
+         *
+         * @param index position of the field as described for the appender
+         * @param value the field value
+         * @return this builder instance
+         */
+        public ConstantBuilder<T> objectField(int index, @Nullable Object value) {
+            Objects.checkIndex(index, this.assignedValues.length);
+            EnumConstructionPlan.FieldSlot fieldSlot = this.enumAppender.fieldSlots.get(index);
+            if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot) {
+                throw new IllegalArgumentException("Argument %s of type %s is not of type %s".formatted(index, fieldSlot.clazz(), "object"));
+            } else if (fieldSlot != null && !fieldSlot.accepts(value)) {
+                throw new IllegalArgumentException("Class type mismatch between %s and %s".formatted(value.getClass(), fieldSlot.clazz()));
+            }
+            return this.setObject(index, value);
+        }
+
+        private ConstantBuilder<T> setBits(int index, EnumConstructionPlan.PrimitiveType primitiveType, long bits) {
+            Objects.checkIndex(index, this.assignedValues.length);
+            EnumConstructionPlan.FieldSlot fieldSlot = this.enumAppender.fieldSlots.get(index);
+            if (fieldSlot != null && !(fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot && primitiveSlot.type() == primitiveType)) {
+                throw new IllegalArgumentException("Argument %s of type %s is not of type %s".formatted(index, fieldSlot.clazz(), primitiveType.name));
+            }
+            return this.setBits(index, bits);
+        }
+
+        private ConstantBuilder<T> setBits(int index, long bits) {
+            this.primitiveValues[index] = bits;
+            this.assignedValues[index] = true;
+            return this;
+        }
+
+        private ConstantBuilder<T> setObject(int index, @Nullable Object value) {
+            this.objectValues[index] = value;
+            this.assignedValues[index] = true;
+            return this;
+        }
+
+        /**
+         * finishes this constant, it is not actually created/added until {@link EnumAppender#applyTo} is called
+         *
+         * @return the appender this constant is added to
+         */
+        public EnumAppender<T> add() {
+            this.enumAppender.additions.put(this.enumConstantName, this);
+            return this.enumAppender;
+        }
+
+        /**
+         * @return all values boxed for passing them to the enum constructor
+         */
+        private Object[] toArguments() {
+            Object[] arguments = new Object[this.assignedValues.length];
+            for (int i = 0; i < arguments.length; i++) {
+                if (this.enumAppender.fieldSlots.get(i) instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+                    arguments[i] = primitiveSlot.type().fromBits(this.primitiveValues[i]);
                 } else {
-                    for (Map.Entry<Class<?>, Class<?>> e : PRIMITIVE_TYPES.entrySet()) {
-                        Optional<Class<?>> optional = findCommonType(oClazz, fClazz, e.getKey(), e.getValue());
-                        if (optional.isPresent()) {
-                            argClasses[i] = optional.get();
-                            continue $1;
-                        }
+                    arguments[i] = this.objectValues[i];
+                }
+            }
+            return arguments;
+        }
+
+        /**
+         * writes all assigned field values to a newly created enum constant
+         *
+         * @param enumConstant the new enum constant
+         */
+        private void applyTo(T enumConstant) {
+            for (int i = 0; i < this.assignedValues.length; i++) {
+                if (this.assignedValues[i]) {
+                    EnumConstructionPlan.FieldSlot fieldSlot = this.enumAppender.fieldSlots.get(i);
+                    if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+                        primitiveSlot.putBits(enumConstant, this.primitiveValues[i]);
+                    } else if (fieldSlot instanceof EnumConstructionPlan.ObjectSlot objectSlot) {
+                        objectSlot.putObject(enumConstant, this.objectValues[i]);
                     }
-                    throw new IllegalArgumentException("Class type mismatch between %s and %s".formatted(oClazz, fClazz));
                 }
             }
         }
-        return argClasses;
     }
 
     /**
@@ -385,15 +825,14 @@ public final class EnumAppender<T extends Enum<T>> {
         /**
          * find a field at a given ordinal
          *
-         * @param enumClazz the class to look for the field in
-         * @param ordinal   ordinal of this field (like with mixins)
-         * @param clazz     clazz type of the field
+         * @param enumClazz      the class to look for the field in
+         * @param declaredFields all fields declared in <code>enumClazz</code>
          * @return the field, it must be present or an exception will be raised
          */
         @Nullable
-        Field getField(Class<? extends Enum<?>> enumClazz) {
+        Field getField(Class<? extends Enum<?>> enumClazz, Field[] declaredFields) {
             int ordinal = this.ordinal;
-            for (Field field : enumClazz.getDeclaredFields()) {
+            for (Field field : declaredFields) {
                 if (field.getType() == this.clazz && ordinal-- == 0) {
                     return field;
                 }
@@ -0,0 +1,797 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Opcodes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * everything required for adding constants to a single enum class that can be resolved once and reused afterward
+ * plans are shared process-wide between all {@link EnumAppender} instances, so repeated additions do not run any reflection
+ *
+ * @param <T> type of enum constant
+ */
+final class EnumConstructionPlan<T extends Enum<T>> {
+    /**
+     * one plan per enum class, entries go away together with the enum class
+     */
+    private static final ClassValue<EnumConstructionPlan<?>> PLANS = new ClassValue<>() {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        protected EnumConstructionPlan<?> computeValue(Class<?> type) {
+            return new EnumConstructionPlan(type.asSubclass(Enum.class));
+        }
+    };
+
+    /**
+     * the enum class this plan is for
+     */
+    private final Class<T> enumClazz;
+    /**
+     * the internal <code>$VALUES</code> field, already made accessible
+     */
+    private final Field valuesField;
+    /**
+     * copy of {@link Class#getDeclaredFields()} for the enum class, as that method copies the array on every call
+     */
+    private final Field[] declaredFields;
+    /**
+     * resolved field slots per list of field descriptions passed to {@link EnumAppender}
+     */
+    private final Map<List<EnumAppender.FieldAccess>, List<FieldSlot>> fieldSlots = new ConcurrentHashMap<>();
+    /**
+     * generated factories per concrete class and field layout
+     */
+    private final Map<FactoryKey, EnumFactory<T>> enumFactories = new ConcurrentHashMap<>();
+    /**
+     * actual enum constructors per concrete class and parameter types
+     */
+    private final Map<ConstructorKey, MethodHandle> constructors = new ConcurrentHashMap<>();
+    /**
+     * all instance fields per concrete class, used for copying template constants
+     */
+    private final Map<Class<?>, List<FieldSlot>> instanceFieldSlots = new ConcurrentHashMap<>();
+    /**
+     * held for appending constants and everything that has to stay consistent with the enum values,
+     * unlike the enum class monitor no outside code can hold it by accident
+     */
+    private final Object lock = new Object();
+    /**
+     * call site always returning the current enum values, created on first request, only accessed while holding {@link #lock}
+     */
+    @Nullable
+    private MutableCallSite valuesCallSite;
+    /**
+     * the array last installed in {@link Class#getEnumConstants()}'s cache, used for telling our own cache apart from one built by some consumer
+     */
+    @Nullable
+    private volatile Object[] installedEnumConstants;
+    /**
+     * set once a warning about adding to an enum class that has already been used has been logged, only accessed while holding {@link #lock}
+     */
+    private boolean lateAppendReported;
+    /**
+     * ordinal of the first constant added to the enum class at runtime, everything below is an original constant
+     */
+    private volatile int addedOrdinalStart = Integer.MAX_VALUE;
+    /**
+     * constants added at runtime should behave like in switch statements, indexed by ordinal minus {@link #addedOrdinalStart}, copied on write
+     */
+    private volatile Object[] switchFallbacks = new Object[0];
+    /**
+     * incremented whenever constants have been added, for cheaply telling if cached enum values are outdated
+     */
+    private volatile int generation;
+    /**
+     * enum constants by name, rebuilt on the first lookup after constants have been added
+     */
+    @Nullable
+    private volatile NameIndex<T> nameIndex;
+
+    private EnumConstructionPlan(Class<T> enumClazz) {
+        this.enumClazz = enumClazz;
+        this.declaredFields = enumClazz.getDeclaredFields();
+        this.valuesField = findValuesField(enumClazz, this.declaredFields);
+    }
+
+    /**
+     * @param enumClazz the enum class
+     * @param <T>       type of enum constant
+     * @return the shared plan for <code>enumClazz</code>
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Enum<T>> EnumConstructionPlan<T> of(Class<T> enumClazz) {
+        return (EnumConstructionPlan<T>) PLANS.get(enumClazz);
+    }
+
+    /**
+     * find the enum values field
+     *
+     * @param enumClazz      enum class containing internal <code>$VALUES</code> field
+     * @param declaredFields all fields declared in <code>enumClazz</code>
+     * @return the values field, already made accessible
+     */
+    private static Field findValuesField(Class<?> enumClazz, Field[] declaredFields) {
+        // don't test for final and private, some mixin accessor / access wideners might make the field mutable, removing the flag
+        final int valuesFieldModifiers = Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
+        for (Field field : declaredFields) {
+            // we don't go looking for $VALUES field by name as Proguard will probably mess with that name
+            if (field.getType().isArray() && (field.getModifiers() & valuesFieldModifiers) == valuesFieldModifiers) {
+                field.setAccessible(true);
+                // does not work in Java 12+ due to private field members of Field.class no longer being accessible via reflection
+//                Field modifiers = field.getClass().getDeclaredField("modifiers");
+//                modifiers.setAccessible(true);
+//                modifiers.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+                return field;
+            }
+        }
+        throw new IllegalStateException("Could not find enum values field in enum class %s".formatted(enumClazz));
+    }
+
+    /**
+     * @return the enum class this plan is for
+     */
+    Class<T> enumClazz() {
+        return this.enumClazz;
+    }
+
+    /**
+     * @return the internal <code>$VALUES</code> field
+     */
+    Field valuesField() {
+        return this.valuesField;
+    }
+
+    /**
+     * @return the current enum values, the array must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    T[] values() {
+        try {
+            return (T[]) this.valuesField.get(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the lock all appends to the enum class are made under, the enum class must already be initialized before taking it
+     */
+    Object lock() {
+        return this.lock;
+    }
+
+    /**
+     * @return how many times constants have been added to the enum class, read before {@link #values()} to never miss an update
+     */
+    int generation() {
+        return this.generation;
+    }
+
+    /**
+     * look up an enum constant by name, unlike {@link Enum#valueOf(Class, String)} this does not fill the enum constant directory
+     *
+     * @param name the constant name
+     * @return the constant, <code>null</code> if there is none
+     */
+    @Nullable
+    T findConstant(String name) {
+        NameIndex<T> nameIndex = this.nameIndex;
+        // read the generation before the values, an index built from newer values is just rebuilt once more
+        int generation = this.generation;
+        if (nameIndex == null || nameIndex.generation() != generation) {
+            T[] values = this.values();
+            Map<String, T> constants = new HashMap<>(values.length * 2);
+            for (T value : values) {
+                constants.put(value.name(), value);
+            }
+            nameIndex = new NameIndex<>(generation, constants);
+            this.nameIndex = nameIndex;
+        }
+        return nameIndex.constants().get(name);
+    }
+
+    /**
+     * get a method handle of type <code>()T[]</code> returning the current enum values, backed by a {@link MutableCallSite}
+     *
+     * @return the dynamic invoker for the values call site
+     */
+    MethodHandle getValuesGetter() {
+        // reading the values initializes the enum class, which must never happen while holding the lock
+        UnsafeExtensibleEnum.ensureInitialized(this.enumClazz);
+        synchronized (this.lock) {
+            if (this.valuesCallSite == null) {
+                Object values;
+                try {
+                    values = this.valuesField.get(null);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                this.valuesCallSite = new MutableCallSite(MethodHandles.constant(this.valuesField.getType(), values));
+            }
+            return this.valuesCallSite.dynamicInvoker();
+        }
+    }
+
+    /**
+     * point the values call site at new enum values and advance the generation, code compiled against the previous values is deoptimized
+     * must be called while holding {@link #lock()}
+     *
+     * @param values the new enum values
+     */
+    void updateValues(T[] values) {
+        if (this.valuesCallSite != null) {
+            this.valuesCallSite.setTarget(MethodHandles.constant(this.valuesField.getType(), values));
+            MutableCallSite.syncAll(new MutableCallSite[]{this.valuesCallSite});
+        }
+        this.generation++;
+    }
+
+    /**
+     * @param enumConstants the array now installed in {@link Class#getEnumConstants()}'s cache
+     */
+    void setInstalledEnumConstants(Object[] enumConstants) {
+        this.installedEnumConstants = enumConstants;
+    }
+
+    /**
+     * test if {@link Class#getEnumConstants()}'s cache holds an array not installed by us, meaning the enum values have been used by someone else
+     * reports <code>true</code> at most once per enum class, must be called while holding {@link #lock()}
+     *
+     * @param enumConstants the array currently installed in {@link Class#getEnumConstants()}'s cache
+     * @return is this a late append that should be reported
+     */
+    boolean testLateAppend(@Nullable Object[] enumConstants) {
+        if (enumConstants != null && enumConstants != this.installedEnumConstants && !this.lateAppendReported) {
+            this.lateAppendReported = true;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * remember where constants added at runtime begin, must be called while holding {@link #lock()} before publishing the first added constant
+     *
+     * @param ordinal ordinal of the first added constant
+     */
+    void markAddedOrdinalStart(int ordinal) {
+        if (this.addedOrdinalStart == Integer.MAX_VALUE) {
+            this.addedOrdinalStart = ordinal;
+        }
+    }
+
+    /**
+     * @param enumConstant an enum constant of this enum class, or <code>null</code>
+     * @return has the constant been added at runtime
+     */
+    boolean isAdded(@Nullable Object enumConstant) {
+        return enumConstant != null && ((Enum<?>) enumConstant).ordinal() >= this.addedOrdinalStart;
+    }
+
+    /**
+     * set the original constant an added constant should behave like in switch statements
+     * must be called while holding {@link #lock()} after {@link #markAddedOrdinalStart(int)}
+     *
+     * @param ordinal  ordinal of the added constant
+     * @param fallback the original constant
+     */
+    void setSwitchFallback(int ordinal, T fallback) {
+        int index = ordinal - this.addedOrdinalStart;
+        Object[] switchFallbacks = Arrays.copyOf(this.switchFallbacks, Math.max(index + 1, this.switchFallbacks.length));
+        switchFallbacks[index] = fallback;
+        this.switchFallbacks = switchFallbacks;
+    }
+
+    /**
+     * @param enumConstant an added constant
+     * @return the original constant the added constant should behave like in switch statements, <code>null</code> if there is none
+     */
+    @Nullable
+    Enum<?> getSwitchFallback(Object enumConstant) {
+        int index = ((Enum<?>) enumConstant).ordinal() - this.addedOrdinalStart;
+        Object[] switchFallbacks = this.switchFallbacks;
+        return index < switchFallbacks.length ? (Enum<?>) switchFallbacks[index] : null;
+    }
+
+    /**
+     * resolves field descriptions to slots that can be written to directly, results are cached
+     *
+     * @param fields field descriptions to resolve
+     * @return resolved slots in the same order, optional fields that are not present are <code>null</code>
+     */
+    List<FieldSlot> getFieldSlots(List<EnumAppender.FieldAccess> fields) {
+        return this.fieldSlots.computeIfAbsent(List.copyOf(fields), (List<EnumAppender.FieldAccess> key) -> {
+            FieldSlot[] slots = new FieldSlot[key.size()];
+            for (int i = 0; i < slots.length; i++) {
+                Field field = key.get(i).getField(this.enumClazz, this.declaredFields);
+                if (field != null) {
+                    slots[i] = FieldSlot.of(field);
+                }
+            }
+            return Collections.unmodifiableList(Arrays.asList(slots));
+        });
+    }
+
+    /**
+     * get slots for all instance fields of a concrete enum class, including those from the abstract enum class,
+     * but excluding the fields from {@link Enum} itself
+     *
+     * @param enumConcreteClazz the concrete enum class
+     * @return slots for all instance fields
+     */
+    List<FieldSlot> getInstanceFieldSlots(Class<? extends T> enumConcreteClazz) {
+        return this.instanceFieldSlots.computeIfAbsent(enumConcreteClazz, (Class<?> key) -> {
+            List<FieldSlot> slots = new ArrayList<>();
+            for (Class<?> clazz = key; clazz != Enum.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz == this.enumClazz ? this.declaredFields : clazz.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        slots.add(FieldSlot.of(field));
+                    }
+                }
+            }
+            return List.copyOf(slots);
+        });
+    }
+
+    /**
+     * get the actual constructor of an enum class, spread so that all arguments after name and ordinal are passed as an array
+     *
+     * @param enumConcreteClazz the class to invoke the constructor for
+     * @param parameterTypes    constructor parameter types, excluding the implicit name and ordinal parameters
+     * @return the constructor with type <code>(String, int, Object[])Object</code>
+     */
+    MethodHandle getConstructor(Class<? extends T> enumConcreteClazz, List<Class<?>> parameterTypes) {
+        return this.constructors.computeIfAbsent(new ConstructorKey(enumConcreteClazz, List.copyOf(parameterTypes)), (ConstructorKey key) -> {
+            MethodType methodType = MethodType.methodType(void.class, String.class, int.class).appendParameterTypes(key.parameterTypes());
+            try {
+                MethodHandle methodHandle = UnsafeExtensibleEnum.privateLookupIn(enumConcreteClazz).findConstructor(enumConcreteClazz, methodType);
+                return methodHandle.asSpreader(Object[].class, key.parameterTypes().size()).asType(MethodType.methodType(Object.class, String.class, int.class, Object[].class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("No constructor %s found in enum class %s".formatted(methodType, enumConcreteClazz), e);
+            }
+        });
+    }
+
+    /**
+     * @param generation the {@link #generation()} the index has been built for
+     * @param constants  all enum constants by name, never modified
+     */
+    private record NameIndex<T>(int generation, Map<String, T> constants) {
+
+    }
+
+    /**
+     * key for enum constructors
+     *
+     * @param enumConcreteClazz the class to invoke the constructor for
+     * @param parameterTypes    constructor parameter types
+     */
+    private record ConstructorKey(Class<?> enumConcreteClazz, List<Class<?>> parameterTypes) {
+
+    }
+
+    /**
+     * get a generated factory for creating constants with straight-line code, the factory class is only generated once
+     *
+     * @param enumConcreteClazz the class to create instances from
+     * @param fieldSlots        resolved field slots from {@link #getFieldSlots}
+     * @param template          optional constant to copy all instance fields from
+     * @return the generated factory
+     */
+    EnumFactory<T> getEnumFactory(Class<? extends T> enumConcreteClazz, List<FieldSlot> fieldSlots, @Nullable T template) {
+        return this.enumFactories.computeIfAbsent(new FactoryKey(enumConcreteClazz, fieldSlots, template), (FactoryKey key) -> {
+            List<FieldSlot> templateSlots = template != null ? this.getInstanceFieldSlots(enumConcreteClazz) : List.of();
+            return EnumFactoryGenerator.generate(enumConcreteClazz, fieldSlots, template, templateSlots);
+        });
+    }
+
+    /**
+     * key for generated factories
+     *
+     * @param enumConcreteClazz the class to create instances from
+     * @param fieldSlots        resolved field slots
+     * @param template          optional constant to copy all instance fields from
+     */
+    private record FactoryKey(Class<?> enumConcreteClazz, List<FieldSlot> fieldSlots, @Nullable Object template) {
+
+    }
+
+    /**
+     * a resolved instance field that can be written to using unsafe
+     * also used for describing constructor parameters, which have no field and offset
+     * <p>primitive and object fields are separate types, raw bits can only be read from and written to a {@link PrimitiveSlot}
+     */
+    sealed interface FieldSlot permits ObjectSlot, PrimitiveSlot {
+
+        /**
+         * @param field the field
+         * @return slot for writing to <code>field</code>
+         */
+        static FieldSlot of(Field field) {
+            return of(field, field.getType(), UnsafeExtensibleEnum.UNSAFE.objectFieldOffset(field));
+        }
+
+        /**
+         * @param clazz the constructor parameter type
+         * @return slot only used for type checks and storing values for a constructor parameter
+         */
+        static FieldSlot parameter(Class<?> clazz) {
+            return of(null, clazz, -1L);
+        }
+
+        private static FieldSlot of(@Nullable Field field, Class<?> clazz, long offset) {
+            if (clazz.isPrimitive()) {
+                return new PrimitiveSlot(field, clazz, offset, PrimitiveType.of(clazz));
+            } else {
+                return new ObjectSlot(field, clazz, offset);
+            }
+        }
+
+        /**
+         * @return the field, <code>null</code> for constructor parameters
+         */
+        @Nullable
+        Field field();
+
+        /**
+         * @return the field type
+         */
+        Class<?> clazz();
+
+        /**
+         * @return object field offset for {@link #field()}
+         */
+        long offset();
+
+        /**
+         * @param value argument we want to write to this field
+         * @return can <code>value</code> be written to this field
+         */
+        boolean accepts(@Nullable Object value);
+
+        /**
+         * copies the value of this field from one instance to another
+         *
+         * @param source the instance to read from
+         * @param target the instance to write to
+         */
+        void copy(Object source, Object target);
+    }
+
+    /**
+     * a field with a reference type
+     *
+     * @param field  the field, <code>null</code> for constructor parameters
+     * @param clazz  the field type
+     * @param offset object field offset for <code>field</code>
+     */
+    record ObjectSlot(@Nullable Field field, Class<?> clazz, long offset) implements FieldSlot {
+
+        @Override
+        public boolean accepts(@Nullable Object value) {
+            return value == null || this.clazz.isInstance(value);
+        }
+
+        /**
+         * @param instance the enum constant
+         * @param value    the object value to write
+         */
+        void putObject(Object instance, @Nullable Object value) {
+            UnsafeExtensibleEnum.UNSAFE.putObject(instance, this.offset, value);
+        }
+
+        /**
+         * @param instance the enum constant
+         * @return the object value of this field
+         */
+        @Nullable
+        Object getObject(Object instance) {
+            return UnsafeExtensibleEnum.UNSAFE.getObject(instance, this.offset);
+        }
+
+        @Override
+        public void copy(Object source, Object target) {
+            this.putObject(target, this.getObject(source));
+        }
+    }
+
+    /**
+     * a field with a primitive type, values are passed around as raw bits to avoid boxing
+     *
+     * @param field  the field, <code>null</code> for constructor parameters
+     * @param clazz  the field type
+     * @param offset object field offset for <code>field</code>
+     * @param type   type tag for choosing the correct unsafe operation
+     */
+    record PrimitiveSlot(@Nullable Field field, Class<?> clazz, long offset, PrimitiveType type) implements FieldSlot {
+
+        @Override
+        public boolean accepts(@Nullable Object value) {
+            return value != null && this.type.boxedClazz == value.getClass();
+        }
+
+        /**
+         * @param instance the enum constant
+         * @param bits     raw bits of the primitive value to write, see {@link PrimitiveType#toBits}
+         */
+        void putBits(Object instance, long bits) {
+            this.type.putBits(instance, this.offset, bits);
+        }
+
+        /**
+         * @param instance the enum constant
+         * @return raw bits of the primitive value of this field
+         */
+        long getBits(Object instance) {
+            return this.type.getBits(instance, this.offset);
+        }
+
+        @Override
+        public void copy(Object source, Object target) {
+            this.putBits(target, this.getBits(source));
+        }
+    }
+
+    /**
+     * type tags for all primitive field types, each knows how to unbox and write a value
+     */
+    enum PrimitiveType {
+        INT(Integer.class, "int") {
+            @Override
+            Object fromBits(long bits) {
+                return (int) bits;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Integer) value;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putInt(instance, offset, (int) bits);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getInt(instance, offset);
+            }
+        },
+        BOOLEAN(Boolean.class, "boolean") {
+            @Override
+            Object fromBits(long bits) {
+                return bits != 0L;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Boolean) value ? 1L : 0L;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putBoolean(instance, offset, bits != 0L);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getBoolean(instance, offset) ? 1L : 0L;
+            }
+        },
+        BYTE(Byte.class, "byte") {
+            @Override
+            Object fromBits(long bits) {
+                return (byte) bits;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Byte) value;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putByte(instance, offset, (byte) bits);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getByte(instance, offset);
+            }
+        },
+        SHORT(Short.class, "short") {
+            @Override
+            Object fromBits(long bits) {
+                return (short) bits;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Short) value;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putShort(instance, offset, (short) bits);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getShort(instance, offset);
+            }
+        },
+        CHAR(Character.class, "char") {
+            @Override
+            Object fromBits(long bits) {
+                return (char) bits;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Character) value;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putChar(instance, offset, (char) bits);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getChar(instance, offset);
+            }
+        },
+        LONG(Long.class, "long") {
+            @Override
+            Object fromBits(long bits) {
+                return bits;
+            }
+
+            @Override
+            long toBits(Object value) {
+                return (Long) value;
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putLong(instance, offset, bits);
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return UnsafeExtensibleEnum.UNSAFE.getLong(instance, offset);
+            }
+        },
+        FLOAT(Float.class, "float") {
+            @Override
+            Object fromBits(long bits) {
+                return Float.intBitsToFloat((int) bits);
+            }
+
+            @Override
+            long toBits(Object value) {
+                return Float.floatToRawIntBits((Float) value);
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putFloat(instance, offset, Float.intBitsToFloat((int) bits));
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return Float.floatToRawIntBits(UnsafeExtensibleEnum.UNSAFE.getFloat(instance, offset));
+            }
+        },
+        DOUBLE(Double.class, "double") {
+            @Override
+            Object fromBits(long bits) {
+                return Double.longBitsToDouble(bits);
+            }
+
+            @Override
+            long toBits(Object value) {
+                return Double.doubleToRawLongBits((Double) value);
+            }
+
+            @Override
+            void putBits(Object instance, long offset, long bits) {
+                UnsafeExtensibleEnum.UNSAFE.putDouble(instance, offset, Double.longBitsToDouble(bits));
+            }
+
+            @Override
+            long getBits(Object instance, long offset) {
+                return Double.doubleToRawLongBits(UnsafeExtensibleEnum.UNSAFE.getDouble(instance, offset));
+            }
+        };
+
+        /**
+         * the boxed class, important to actually use the class type originally defined for the enum,
+         * not what we get from argument objects
+         */
+        final Class<?> boxedClazz;
+        /**
+         * name for error messages
+         */
+        final String name;
+
+        PrimitiveType(Class<?> boxedClazz, String name) {
+            this.boxedClazz = boxedClazz;
+            this.name = name;
+        }
+
+        /**
+         * @param clazz the primitive field type
+         * @return the type tag for <code>clazz</code>
+         */
+        static PrimitiveType of(Class<?> clazz) {
+            if (clazz == int.class) {
+                return INT;
+            } else if (clazz == boolean.class) {
+                return BOOLEAN;
+            } else if (clazz == byte.class) {
+                return BYTE;
+            } else if (clazz == short.class) {
+                return SHORT;
+            } else if (clazz == char.class) {
+                return CHAR;
+            } else if (clazz == long.class) {
+                return LONG;
+            } else if (clazz == float.class) {
+                return FLOAT;
+            } else if (clazz == double.class) {
+                return DOUBLE;
+            } else {
+                throw new IllegalArgumentException("Unsupported primitive type %s".formatted(clazz));
+            }
+        }
+
+        /**
+         * unboxes a primitive value to its raw bits, so it can be stored without boxing until the constant is created
+         *
+         * @param value boxed primitive value
+         * @return raw bits of <code>value</code>
+         */
+        abstract long toBits(Object value);
+
+        /**
+         * boxes raw bits again, only required for passing values to a constructor
+         *
+         * @param bits raw bits from {@link #toBits}
+         * @return boxed primitive value
+         */
+        abstract Object fromBits(long bits);
+
+        /**
+         * write a primitive value using unsafe (since reflection will not work with final fields)
+         *
+         * @param instance instance field belongs to
+         * @param offset   object field offset
+         * @param bits     raw bits of the value to set
+         */
+        abstract void putBits(Object instance, long offset, long bits);
+
+        /**
+         * read a primitive value using unsafe
+         *
+         * @param instance instance field belongs to
+         * @param offset   object field offset
+         * @return raw bits of the value
+         */
+        abstract long getBits(Object instance, long offset);
+    }
+}
@@ -0,0 +1,382 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * process-wide session collecting enum extensions from all mods, so every enum class is only extended once per batch:
+ * <code>$VALUES</code> is copied once, caches are rebuilt once and switch statements are patched once, no matter how many mods add constants
+ * <p>a batch is committed when the enum class is initialized (see {@link DeferredEnumExtensions}), when a constant from it is first requested, or at the latest when {@link #commit()} is called
+ * by the loader at a fixed point during startup, submissions for an enum class that has already been initialized stay queued until one of the latter two happens,
+ * so they still end up in a single batch
+ * <p>within a batch constants are added sorted by name, so ordinals do not depend on the order mods happen to be constructed in
+ * <p>constants can also just be reserved via {@link #reserve}, then the appender and with it all arguments are only created when the batch is committed,
+ * reserved constants are never committed from class initialization, which might happen long before the content their arguments point to exists,
+ * they wait for {@link #commit()} or for being requested via {@link EnumRef#get()}
+ * <p>with {@link #prepareInBackground(Executor)} the reflective lookups for a batch run on a background executor while mods are still being constructed,
+ * {@link #commit()} acts as a barrier waiting for all of that work, so only the actual publishing of new constants is left for the loading thread
+ */
+public final class EnumExtensionSession {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnumExtensionSession.class);
+    /**
+     * pending batch per enum class
+     */
+    private static final Map<Class<?>, Batch<?>> BATCHES = new ConcurrentHashMap<>();
+    /**
+     * problems from all batches since the last {@link #commit()}, only accessed while holding its monitor
+     */
+    private static final List<String> PROBLEMS = new ArrayList<>();
+    /**
+     * work running in the background that {@link #commit()} has to wait for
+     */
+    private static final Queue<CompletableFuture<?>> PREPARATIONS = new ConcurrentLinkedQueue<>();
+    /**
+     * executor for preparing batches, <code>null</code> to prepare everything while committing
+     */
+    @Nullable
+    private static volatile Executor preparationExecutor;
+
+    private EnumExtensionSession() {
+        // NO-OP
+    }
+
+    /**
+     * submit all additions from an appender to the session, the appender is handed over and must not be used afterward
+     *
+     * @param enumAppender the appender with all additions
+     * @param switchUsers  classes containing switch statements that need updating
+     * @param <T>          type of enum constant
+     * @return handle for the new values, resolving values early commits the batch for the enum class
+     */
+    public static <T extends Enum<T>> DeferredEnumConstants<T> submit(EnumAppender<T> enumAppender, Class<?>... switchUsers) {
+        if (enumAppender.enumConstantNames().isEmpty()) throw new IllegalStateException("Invalid builder, no additions have been made!");
+        List<String> enumConstantNames = List.copyOf(enumAppender.enumConstantNames());
+        return submit(enumAppender.enumClazz(), enumConstantNames, () -> enumAppender, (T enumConstant) -> {
+            // NO-OP
+        }, () -> {
+            // NO-OP
+        }, false, switchUsers);
+    }
+
+    /**
+     * reserve a single enum constant without creating it yet, the appender is only requested on {@link #commit()} or when the constant is first requested,
+     * never when the enum class is initialized, so arguments can be resolved from suppliers pointing to content that does not exist yet
+     *
+     * @param enumClazz           the enum class
+     * @param enumConstantName    name of the new enum constant
+     * @param enumAppenderFactory creates an appender adding just <code>enumConstantName</code>, may return <code>null</code> when the constant already exists,
+     *                            e.g. because it has been declared ahead of time, the enum class is always initialized when this is called
+     * @param onAdded             called with the new enum constant right after it has been added
+     * @param switchUsers         classes containing switch statements that need updating
+     * @param <T>                 type of enum constant
+     * @return lazy reference to the new enum constant
+     */
+    public static <T extends Enum<T>> EnumRef<T> reserve(Class<T> enumClazz, String enumConstantName, Supplier<EnumAppender<T>> enumAppenderFactory, Consumer<? super T> onAdded, Class<?>... switchUsers) {
+        return reserve(enumClazz, enumConstantName, enumAppenderFactory, onAdded, () -> {
+            // NO-OP
+        }, switchUsers);
+    }
+
+    /**
+     * reserve a single enum constant without creating it yet, the appender is only requested on {@link #commit()} or when the constant is first requested,
+     * never when the enum class is initialized, so arguments can be resolved from suppliers pointing to content that does not exist yet
+     *
+     * @param enumClazz           the enum class
+     * @param enumConstantName    name of the new enum constant
+     * @param enumAppenderFactory creates an appender adding just <code>enumConstantName</code>, may return <code>null</code> when the constant already exists,
+     *                            e.g. because it has been declared ahead of time, the enum class is always initialized when this is called
+     * @param onAdded             called with the new enum constant right after it has been added
+     * @param onFailed            called when the batch has been committed without the new enum constant, e.g. for releasing the name again
+     * @param switchUsers         classes containing switch statements that need updating
+     * @param <T>                 type of enum constant
+     * @return lazy reference to the new enum constant
+     */
+    public static <T extends Enum<T>> EnumRef<T> reserve(Class<T> enumClazz, String enumConstantName, Supplier<EnumAppender<T>> enumAppenderFactory, Consumer<? super T> onAdded, Runnable onFailed, Class<?>... switchUsers) {
+        Objects.requireNonNull(enumClazz, "enum class is null");
+        Objects.requireNonNull(enumConstantName, "enum constant name is null");
+        Objects.requireNonNull(enumAppenderFactory, "enum appender factory is null");
+        Objects.requireNonNull(onAdded, "on added is null");
+        Objects.requireNonNull(onFailed, "on failed is null");
+        DeferredEnumConstants<T> deferredEnumConstants = submit(enumClazz, List.of(enumConstantName), enumAppenderFactory, onAdded, onFailed, true, switchUsers);
+        return new EnumRef<>(deferredEnumConstants, enumConstantName);
+    }
+
+    private static <T extends Enum<T>> DeferredEnumConstants<T> submit(Class<T> enumClazz, List<String> enumConstantNames, Supplier<EnumAppender<T>> enumAppenderFactory, Consumer<? super T> onAdded, Runnable onFailed, boolean reserved, Class<?>[] switchUsers) {
+        Batch<T> batch = getBatch(enumClazz);
+        DeferredEnumConstants<T> deferredEnumConstants = new DeferredEnumConstants<>(enumClazz, enumConstantNames, batch::commitInitialized);
+        // only hook into class initialization while it is still ahead, otherwise the batch would be committed right away for every single submission,
+        // reserved constants never need the hook, as their arguments might not exist when the game initializes the enum class
+        boolean schedule = !reserved && !DeferredEnumExtensions.isInitialized(enumClazz);
+        synchronized (batch) {
+            batch.submissions.add(new Submission<>(enumConstantNames, enumAppenderFactory, deferredEnumConstants, onAdded, onFailed, reserved, switchUsers));
+            schedule &= !batch.scheduled;
+            batch.scheduled |= schedule;
+        }
+        Executor executor = preparationExecutor;
+        if (executor != null) {
+            batch.prepare(switchUsers, executor);
+        }
+        if (schedule) {
+            DeferredEnumExtensions.runWhenInitialized(enumClazz, () -> batch.commit(false));
+        }
+        return deferredEnumConstants;
+    }
+
+    /**
+     * opt into preparing batches on a background executor, this only includes reflection that never initializes any class,
+     * so nothing is ever published from the executor
+     * <p>batches committed before their preparation has finished, e.g. from a static initializer, never wait for it and do the work themselves instead
+     *
+     * @param executor the executor for preparing batches
+     */
+    public static void prepareInBackground(Executor executor) {
+        Objects.requireNonNull(executor, "executor is null");
+        preparationExecutor = executor;
+    }
+
+    /**
+     * make {@link #commit()} wait for some background work, like building the {@link SwitchMapIndex}
+     *
+     * @param future the background work
+     */
+    public static void addCommitBarrier(CompletableFuture<?> future) {
+        Objects.requireNonNull(future, "future is null");
+        PREPARATIONS.add(future);
+    }
+
+    /**
+     * commit all pending batches, enum classes are processed in order of their names
+     * <p>problems from all batches since the last commit are reported together
+     *
+     * @throws IllegalStateException when any constant could not be added
+     */
+    public static void commit() {
+        long startTime = System.nanoTime();
+        // failed preparations are not a problem, the work is simply redone while committing
+        CompletableFuture.allOf(PREPARATIONS.toArray(CompletableFuture<?>[]::new)).exceptionally((Throwable throwable) -> null).join();
+        PREPARATIONS.removeIf(CompletableFuture::isDone);
+        List<Class<?>> enumClasses = new ArrayList<>(BATCHES.keySet());
+        enumClasses.sort(Comparator.comparing(Class::getName));
+        for (Class<?> enumClazz : enumClasses) {
+            BATCHES.get(enumClazz).commitInitialized();
+        }
+        LOGGER.debug("Committed enum extensions for {} enum classes in {} ms", enumClasses.size(), (System.nanoTime() - startTime) / 1_000_000L);
+        synchronized (PROBLEMS) {
+            if (!PROBLEMS.isEmpty()) {
+                String message = "Failed to add %s enum constants:%n%s".formatted(PROBLEMS.size(), String.join(System.lineSeparator(), PROBLEMS));
+                PROBLEMS.clear();
+                throw new IllegalStateException(message);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Enum<T>> Batch<T> getBatch(Class<T> enumClazz) {
+        return (Batch<T>) BATCHES.computeIfAbsent(enumClazz, (Class<?> key) -> new Batch<>(enumClazz));
+    }
+
+    private static void reportProblem(String problem, Throwable throwable) {
+        // batches might be committed from a static initializer, so just log here and throw from commit
+        LOGGER.error(problem, throwable);
+        synchronized (PROBLEMS) {
+            PROBLEMS.add(problem);
+        }
+    }
+
+    /**
+     * all submissions for an enum class waiting to be committed together
+     *
+     * @param <T> type of enum constant
+     */
+    private static final class Batch<T extends Enum<T>> {
+        private final Class<T> enumClazz;
+        private final List<Submission<T>> submissions = new ArrayList<>();
+        /**
+         * classes with switch statements over the enum class from all submissions so far, later batches keep patching them
+         */
+        private final Set<Class<?>> switchUsers = new LinkedHashSet<>();
+        /**
+         * switch map fields per switch user, only looked up once as they never change
+         */
+        private final Map<Class<?>, CompletableFuture<Collection<Field>>> switchFields = new ConcurrentHashMap<>();
+        /**
+         * held for the whole commit, so a thread requesting a constant waits for a commit that is already running on another thread
+         */
+        private final Object commitLock = new Object();
+        /**
+         * has the construction plan been requested on the preparation executor
+         */
+        private volatile boolean planPrepared;
+        /**
+         * is a commit queued in {@link DeferredEnumExtensions}
+         */
+        private boolean scheduled;
+
+        private Batch(Class<T> enumClazz) {
+            this.enumClazz = enumClazz;
+        }
+
+        private void prepare(Class<?>[] switchUsers, Executor executor) {
+            if (!this.planPrepared) {
+                this.planPrepared = true;
+                PREPARATIONS.add(CompletableFuture.runAsync(() -> EnumConstructionPlan.of(this.enumClazz), executor));
+            }
+            for (Class<?> switchUser : switchUsers) {
+                this.switchFields.computeIfAbsent(switchUser, (Class<?> key) -> {
+                    CompletableFuture<Collection<Field>> future = CompletableFuture.supplyAsync(() -> {
+                        return UnsafeExtensibleEnum.findRelatedSwitchFields(this.enumClazz, new Class<?>[]{switchUser});
+                    }, executor);
+                    PREPARATIONS.add(future);
+                    return future;
+                });
+            }
+        }
+
+        private Collection<Field> getSwitchFields(Class<?>[] switchUsers) {
+            Set<Field> switchFields = new LinkedHashSet<>();
+            for (Class<?> switchUser : switchUsers) {
+                CompletableFuture<Collection<Field>> future = this.switchFields.get(switchUser);
+                // never wait for the executor here, this might run from a static initializer some background task is blocked on
+                if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+                    future = CompletableFuture.completedFuture(UnsafeExtensibleEnum.findRelatedSwitchFields(this.enumClazz, new Class<?>[]{switchUser}));
+                    this.switchFields.put(switchUser, future);
+                }
+                switchFields.addAll(future.join());
+            }
+            return switchFields;
+        }
+
+        /**
+         * commit outside of class initialization, the enum class is initialized first and everything queued for it in {@link DeferredEnumExtensions} is applied,
+         * so the commit lock is never taken by a thread that is about to block on another thread initializing the enum class
+         */
+        private void commitInitialized() {
+            DeferredEnumExtensions.applyPending(this.enumClazz);
+            this.commit(true);
+        }
+
+        /**
+         * @param includeReserved commit reserved constants too, which is never done from class initialization
+         */
+        private void commit(boolean includeReserved) {
+            synchronized (this.commitLock) {
+                this.commitLocked(includeReserved);
+            }
+        }
+
+        private void commitLocked(boolean includeReserved) {
+            List<Submission<T>> submissions = new ArrayList<>();
+            Class<?>[] switchUsers;
+            synchronized (this) {
+                for (Iterator<Submission<T>> iterator = this.submissions.iterator(); iterator.hasNext(); ) {
+                    Submission<T> submission = iterator.next();
+                    if (includeReserved || !submission.reserved()) {
+                        submissions.add(submission);
+                        iterator.remove();
+                    }
+                }
+                this.scheduled = false;
+                for (Submission<T> submission : submissions) {
+                    this.switchUsers.addAll(List.of(submission.switchUsers()));
+                }
+                switchUsers = this.switchUsers.toArray(Class<?>[]::new);
+            }
+            if (submissions.isEmpty()) return;
+            // existing names are looked up through the plan, the values call site is only for callers asking for it
+            UnsafeExtensibleEnum.ensureInitialized(this.enumClazz);
+            EnumConstructionPlan<T> plan = EnumConstructionPlan.of(this.enumClazz);
+            // sorted, so ordinals are independent of submission order
+            Map<String, EnumAppender<T>> enumAppendersByName = new TreeMap<>();
+            List<EnumAppender<T>> enumAppenders = new ArrayList<>();
+            for (Submission<T> submission : submissions) {
+                EnumAppender<T> enumAppender;
+                try {
+                    // lazy arguments are only resolved now, after all mods have had a chance to register their content
+                    enumAppender = submission.enumAppenderFactory().get();
+                    if (enumAppender == null) {
+                        // the factory found the constants to already exist, so there is nothing to add
+                        for (String enumConstantName : submission.enumConstantNames()) {
+                            if (plan.findConstant(enumConstantName) == null) {
+                                throw new IllegalStateException("Missing %s".formatted(enumConstantName));
+                            }
+                        }
+                        continue;
+                    } else if (!enumAppender.enumConstantNames().equals(Set.copyOf(submission.enumConstantNames()))) {
+                        throw new IllegalStateException("Expected additions %s, but got %s".formatted(submission.enumConstantNames(), enumAppender.enumConstantNames()));
+                    }
+                } catch (RuntimeException e) {
+                    reportProblem("Failed to prepare %s for enum class %s".formatted(submission.enumConstantNames(), this.enumClazz.getName()), e);
+                    continue;
+                }
+                enumAppenders.add(enumAppender);
+                for (String enumConstantName : submission.enumConstantNames()) {
+                    if (plan.findConstant(enumConstantName) != null || enumAppendersByName.containsKey(enumConstantName)) {
+                        // only skip the duplicate, so other mods' constants still make it in
+                        reportProblem("%s already exists in enum class %s".formatted(enumConstantName, this.enumClazz.getName()), null);
+                    } else {
+                        enumAppendersByName.put(enumConstantName, enumAppender);
+                    }
+                }
+            }
+            if (!enumAppendersByName.isEmpty()) {
+                try {
+                    UnsafeExtensibleEnum.appendEnumConstants(this.enumClazz, enumAppendersByName.keySet(), (String enumConstantName, int ordinal) -> {
+                        return enumAppendersByName.get(enumConstantName).createEnumConstant(plan, enumConstantName, ordinal);
+                    });
+                    // templates are stored per constant, so a single update covers all appenders
+                    UnsafeExtensibleEnum.updateSwitchFields(this.enumClazz, this.getSwitchFields(switchUsers), -1);
+                } catch (Throwable e) {
+                    reportProblem("Failed to add %s to enum class %s".formatted(enumAppendersByName.keySet(), this.enumClazz.getName()), e);
+                }
+            }
+            enumAppenders.forEach(EnumAppender::clear);
+            for (Submission<T> submission : submissions) {
+                DeferredEnumConstants<T> deferredEnumConstants = submission.deferredEnumConstants();
+                deferredEnumConstants.resolve();
+                try {
+                    if (deferredEnumConstants.isResolved()) {
+                        deferredEnumConstants.getAll().forEach(submission.onAdded());
+                    } else {
+                        submission.onFailed().run();
+                    }
+                } catch (RuntimeException e) {
+                    reportProblem("Failed to finish adding %s to enum class %s".formatted(submission.enumConstantNames(), this.enumClazz.getName()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param enumConstantNames     names of all constants added by the submission
+     * @param enumAppenderFactory   provides the appender, only called when committing
+     * @param deferredEnumConstants the handle returned for the submission
+     * @param onAdded               called for every new constant after it has been added
+     * @param onFailed              called when the submission has been committed without all of its constants
+     * @param reserved              submitted via {@link #reserve}, so never committed from class initialization
+     * @param switchUsers           classes containing switch statements that need updating
+     * @param <T>                   type of enum constant
+     */
+    private record Submission<T extends Enum<T>>(List<String> enumConstantNames, Supplier<EnumAppender<T>> enumAppenderFactory, DeferredEnumConstants<T> deferredEnumConstants, Consumer<? super T> onAdded, Runnable onFailed, boolean reserved, Class<?>[] switchUsers) {
+
+    }
+}
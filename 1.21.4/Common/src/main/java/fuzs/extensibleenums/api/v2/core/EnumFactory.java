@@ -0,0 +1,19 @@
+package fuzs.extensibleenums.api.v2.core;
+
+/**
+ * creates fully initialized enum constants for a fixed enum class and field layout
+ * implementations are generated at runtime by {@link EnumFactoryGenerator}
+ *
+ * @param <T> type of enum constant
+ */
+interface EnumFactory<T extends Enum<T>> {
+
+    /**
+     * @param enumConstantName name of the new constant
+     * @param ordinal          ordinal of the new constant
+     * @param primitiveValues  raw bits for all primitive fields
+     * @param objectValues     values for all object fields
+     * @return the new enum constant
+     */
+    T create(String enumConstantName, int ordinal, long[] primitiveValues, Object[] objectValues);
+}
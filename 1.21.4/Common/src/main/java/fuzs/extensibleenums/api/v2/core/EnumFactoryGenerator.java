@@ -0,0 +1,197 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * generates a hidden {@link EnumFactory} class per enum class and field layout
+ * the generated code allocates the constant and writes every field with straight-line unsafe calls on constant offsets,
+ * which the JIT can inline, instead of going through {@link EnumConstructionPlan.PrimitiveType} for every argument
+ * <p>final fields cannot be written with <code>putfield</code> from outside the enum constructor, so unsafe is still used for the writes
+ */
+final class EnumFactoryGenerator {
+    private static final String UNSAFE_EXTENSIBLE_ENUM = Type.getInternalName(UnsafeExtensibleEnum.class);
+    private static final String UNSAFE = "sun/misc/Unsafe";
+    private static final String UNSAFE_DESCRIPTOR = "L" + UNSAFE + ";";
+    private static final Handle CLASS_DATA_AT = new Handle(Opcodes.H_INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classDataAt", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;", false);
+    /**
+     * the concrete enum class is passed as class data, as it might not be accessible from our package (e.g. anonymous enum classes)
+     */
+    private static final ConstantDynamic CLASS_DATA = new ConstantDynamic("_", Type.getDescriptor(Class.class), CLASS_DATA_AT, 0);
+    /**
+     * the optional template constant is passed as class data, too
+     */
+    private static final ConstantDynamic TEMPLATE_DATA = new ConstantDynamic("_", Type.getDescriptor(Object.class), CLASS_DATA_AT, 1);
+    /**
+     * local variable indices in {@link EnumFactory#create}
+     */
+    private static final int NAME_INDEX = 1;
+    private static final int ORDINAL_INDEX = 2;
+    private static final int PRIMITIVE_VALUES_INDEX = 3;
+    private static final int OBJECT_VALUES_INDEX = 4;
+    private static final int UNSAFE_INDEX = 5;
+    private static final int INSTANCE_INDEX = 6;
+    private static final int TEMPLATE_INDEX = 7;
+
+    private EnumFactoryGenerator() {
+        // NO-OP
+    }
+
+    /**
+     * @param enumConcreteClazz the class to create instances from
+     * @param fieldSlots        resolved fields, in the same order as values are passed to the factory
+     * @param template          optional constant to copy all instance fields from before writing <code>fieldSlots</code>
+     * @param templateSlots     all instance fields of <code>enumConcreteClazz</code>, empty without a template
+     * @param <T>               type of enum constant
+     * @return the generated factory
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Enum<T>> EnumFactory<T> generate(Class<? extends T> enumConcreteClazz, List<EnumConstructionPlan.FieldSlot> fieldSlots, @Nullable T template, List<EnumConstructionPlan.FieldSlot> templateSlots) {
+        byte[] bytes = generateClass(fieldSlots, template != null, templateSlots);
+        List<?> classData = template != null ? List.of(enumConcreteClazz, template) : List.of(enumConcreteClazz);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(bytes, classData, true);
+            return (EnumFactory<T>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable throwable) {
+            throw new RuntimeException("Failed to generate enum factory for %s".formatted(enumConcreteClazz), throwable);
+        }
+    }
+
+    private static byte[] generateClass(List<EnumConstructionPlan.FieldSlot> fieldSlots, boolean hasTemplate, List<EnumConstructionPlan.FieldSlot> templateSlots) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String className = Type.getInternalName(EnumFactory.class) + "$Generated";
+        classWriter.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, className, null, "java/lang/Object", new String[]{Type.getInternalName(EnumFactory.class)});
+        MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "create", "(Ljava/lang/String;I[J[Ljava/lang/Object;)Ljava/lang/Enum;", null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, UNSAFE_EXTENSIBLE_ENUM, "UNSAFE", UNSAFE_DESCRIPTOR);
+        methodVisitor.visitVarInsn(Opcodes.ASTORE, UNSAFE_INDEX);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, UNSAFE_INDEX);
+        methodVisitor.visitLdcInsn(CLASS_DATA);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, UNSAFE, "allocateInstance", "(Ljava/lang/Class;)Ljava/lang/Object;", false);
+        methodVisitor.visitVarInsn(Opcodes.ASTORE, INSTANCE_INDEX);
+        putValue(methodVisitor, UnsafeExtensibleEnum.ENUM_ORDINAL_OFFSET, "putInt", "I", () -> {
+            methodVisitor.visitVarInsn(Opcodes.ILOAD, ORDINAL_INDEX);
+        });
+        putValue(methodVisitor, UnsafeExtensibleEnum.ENUM_NAME_OFFSET, "putObject", "Ljava/lang/Object;", () -> {
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, NAME_INDEX);
+        });
+        if (hasTemplate) {
+            methodVisitor.visitLdcInsn(TEMPLATE_DATA);
+            methodVisitor.visitVarInsn(Opcodes.ASTORE, TEMPLATE_INDEX);
+            for (EnumConstructionPlan.FieldSlot fieldSlot : templateSlots) {
+                copyFieldSlot(methodVisitor, fieldSlot);
+            }
+        }
+        for (int i = 0; i < fieldSlots.size(); i++) {
+            EnumConstructionPlan.FieldSlot fieldSlot = fieldSlots.get(i);
+            if (fieldSlot != null) {
+                putFieldSlot(methodVisitor, fieldSlot, i);
+            }
+        }
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, INSTANCE_INDEX);
+        methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Enum");
+        methodVisitor.visitInsn(Opcodes.ARETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private static void putFieldSlot(MethodVisitor methodVisitor, EnumConstructionPlan.FieldSlot fieldSlot, int index) {
+        if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+            switch (primitiveSlot.type()) {
+                case INT -> putPrimitive(methodVisitor, fieldSlot, index, "putInt", "I", Opcodes.L2I);
+                case BOOLEAN -> putPrimitive(methodVisitor, fieldSlot, index, "putBoolean", "Z", Opcodes.L2I);
+                case BYTE -> putPrimitive(methodVisitor, fieldSlot, index, "putByte", "B", Opcodes.L2I, Opcodes.I2B);
+                case SHORT -> putPrimitive(methodVisitor, fieldSlot, index, "putShort", "S", Opcodes.L2I, Opcodes.I2S);
+                case CHAR -> putPrimitive(methodVisitor, fieldSlot, index, "putChar", "C", Opcodes.L2I, Opcodes.I2C);
+                case LONG -> putPrimitive(methodVisitor, fieldSlot, index, "putLong", "J");
+                case FLOAT -> putValue(methodVisitor, fieldSlot.offset(), "putFloat", "F", () -> {
+                    loadArrayElement(methodVisitor, PRIMITIVE_VALUES_INDEX, index, Opcodes.LALOAD);
+                    methodVisitor.visitInsn(Opcodes.L2I);
+                    methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "intBitsToFloat", "(I)F", false);
+                });
+                case DOUBLE -> putValue(methodVisitor, fieldSlot.offset(), "putDouble", "D", () -> {
+                    loadArrayElement(methodVisitor, PRIMITIVE_VALUES_INDEX, index, Opcodes.LALOAD);
+                    methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D", false);
+                });
+            }
+        } else {
+            putValue(methodVisitor, fieldSlot.offset(), "putObject", "Ljava/lang/Object;", () -> {
+                loadArrayElement(methodVisitor, OBJECT_VALUES_INDEX, index, Opcodes.AALOAD);
+            });
+        }
+    }
+
+    /**
+     * generates <code>unsafe.putX(instance, offset, unsafe.getX(template, offset))</code>
+     */
+    private static void copyFieldSlot(MethodVisitor methodVisitor, EnumConstructionPlan.FieldSlot fieldSlot) {
+        String descriptor;
+        String methodName;
+        if (fieldSlot instanceof EnumConstructionPlan.PrimitiveSlot primitiveSlot) {
+            descriptor = Type.getDescriptor(fieldSlot.clazz());
+            methodName = switch (primitiveSlot.type()) {
+                case INT -> "Int";
+                case BOOLEAN -> "Boolean";
+                case BYTE -> "Byte";
+                case SHORT -> "Short";
+                case CHAR -> "Char";
+                case LONG -> "Long";
+                case FLOAT -> "Float";
+                case DOUBLE -> "Double";
+            };
+        } else {
+            descriptor = "Ljava/lang/Object;";
+            methodName = "Object";
+        }
+        putValue(methodVisitor, fieldSlot.offset(), "put" + methodName, descriptor, () -> {
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, UNSAFE_INDEX);
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, TEMPLATE_INDEX);
+            methodVisitor.visitLdcInsn(fieldSlot.offset());
+            methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, UNSAFE, "get" + methodName, "(Ljava/lang/Object;J)" + descriptor, false);
+        });
+    }
+
+    private static void putPrimitive(MethodVisitor methodVisitor, EnumConstructionPlan.FieldSlot fieldSlot, int index, String methodName, String descriptor, int... conversions) {
+        putValue(methodVisitor, fieldSlot.offset(), methodName, descriptor, () -> {
+            loadArrayElement(methodVisitor, PRIMITIVE_VALUES_INDEX, index, Opcodes.LALOAD);
+            for (int conversion : conversions) {
+                methodVisitor.visitInsn(conversion);
+            }
+        });
+    }
+
+    private static void loadArrayElement(MethodVisitor methodVisitor, int arrayIndex, int index, int opcode) {
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, arrayIndex);
+        methodVisitor.visitLdcInsn(index);
+        methodVisitor.visitInsn(opcode);
+    }
+
+    /**
+     * generates <code>unsafe.putX(instance, offset, value)</code>
+     */
+    private static void putValue(MethodVisitor methodVisitor, long offset, String methodName, String descriptor, Runnable valueLoader) {
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, UNSAFE_INDEX);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, INSTANCE_INDEX);
+        methodVisitor.visitLdcInsn(offset);
+        valueLoader.run();
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, UNSAFE, methodName, "(Ljava/lang/Object;J" + descriptor + ")V", false);
+    }
+}
@@ -0,0 +1,77 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * lazy reference to an enum constant reserved via {@link EnumExtensionSession#reserve}, meant to be stored in a <code>static final</code> field instead of the constant itself
+ * <p>the name is taken right away, while the constant is only created together with all other pending constants of the enum class on the first call to {@link #get()},
+ * or on {@link EnumExtensionSession#commit()}, whatever happens first, initializing the enum class does not create it
+ * <p>the ordinal is only assigned at that point, as constants in a batch are sorted by name
+ *
+ * @param <T> type of enum constant
+ */
+public final class EnumRef<T extends Enum<T>> implements Supplier<T> {
+    private final DeferredEnumConstants<T> enumConstants;
+    private final String enumConstantName;
+    @Nullable
+    private volatile T enumConstant;
+
+    EnumRef(DeferredEnumConstants<T> enumConstants, String enumConstantName) {
+        this.enumConstants = enumConstants;
+        this.enumConstantName = enumConstantName;
+    }
+
+    /**
+     * create a reference for a constant that already exists, e.g. when it has been declared ahead of time
+     *
+     * @param enumConstant the existing enum constant
+     * @param <T>          type of enum constant
+     * @return reference that is already materialized
+     */
+    public static <T extends Enum<T>> EnumRef<T> of(T enumConstant) {
+        Objects.requireNonNull(enumConstant, "enum constant is null");
+        DeferredEnumConstants<T> enumConstants = new DeferredEnumConstants<>(enumConstant.getDeclaringClass(), List.of(enumConstant.name()));
+        enumConstants.resolve();
+        EnumRef<T> enumRef = new EnumRef<>(enumConstants, enumConstant.name());
+        enumRef.enumConstant = enumConstant;
+        return enumRef;
+    }
+
+    /**
+     * @return name of the reserved enum constant
+     */
+    public String name() {
+        return this.enumConstantName;
+    }
+
+    /**
+     * @return has the enum constant been created yet
+     */
+    public boolean isMaterialized() {
+        return this.enumConstant != null || this.enumConstants.isResolved();
+    }
+
+    /**
+     * get the enum constant, creates all pending constants of the enum class first if that has not happened yet
+     *
+     * @return the enum constant
+     * @throws IllegalStateException when the enum constant could not be created
+     */
+    @Override
+    public T get() {
+        T enumConstant = this.enumConstant;
+        if (enumConstant == null) {
+            this.enumConstant = enumConstant = this.enumConstants.get(this.enumConstantName);
+        }
+        return enumConstant;
+    }
+
+    @Override
+    public String toString() {
+        return "EnumRef[" + this.enumConstantName + "]";
+    }
+}
@@ -0,0 +1,147 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.runtime.SwitchBootstraps;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * replacements for the bootstrap methods in {@link SwitchBootstraps} used by javac 21+ for pattern switches and switches over enums from other classes
+ * <p>the call sites returned by {@link SwitchBootstraps} are linked once and may cache a mapping built from the enum constants present at that time,
+ * so constants added later can end up in the wrong branch, throw a {@link MatchException}, or fail on an out-of-bounds ordinal
+ * <p>the call sites returned from here are guarded by a single ordinal comparison, original constants go straight to the original call site,
+ * added constants are switched over as the template they were created from, or go to the default branch when there is none,
+ * exhaustive switch expressions without a default branch still throw a {@link MatchException} for added constants without a template as there is nothing else to run
+ * <p>call sites are redirected to this class at load time by {@link fuzs.extensibleenums.impl.coremod.EnumSwitchRedirector},
+ * which runs as a coremod on NeoForge, fabric offers no general class transformer to run it from
+ */
+public final class EnumSwitchBootstraps {
+    private static final MethodHandle IS_ADDED;
+    private static final MethodHandle SWITCH_ADDED;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            IS_ADDED = lookup.findVirtual(AddedConstantGuard.class, "isAdded", MethodType.methodType(boolean.class, Object.class));
+            SWITCH_ADDED = lookup.findVirtual(AddedConstantGuard.class, "switchAdded", MethodType.methodType(int.class, Object.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private EnumSwitchBootstraps() {
+        // NO-OP
+    }
+
+    /**
+     * replacement for {@link SwitchBootstraps#enumSwitch(MethodHandles.Lookup, String, MethodType, Object...)}
+     *
+     * @param lookup         the caller lookup
+     * @param invocationName unused
+     * @param invocationType <code>(E, int)int</code>
+     * @param labels         the case labels, {@link String} constant names or {@link Class} instances
+     * @return the guarded call site
+     */
+    public static CallSite enumSwitch(MethodHandles.Lookup lookup, String invocationName, MethodType invocationType, Object... labels) {
+        CallSite callSite = SwitchBootstraps.enumSwitch(lookup, invocationName, invocationType, labels);
+        Class<?> enumClass = invocationType.parameterType(0);
+        boolean constantsOnly = true;
+        for (Object label : labels) {
+            if (!(label instanceof String)) {
+                constantsOnly = false;
+                break;
+            }
+        }
+        // with only constant labels there is nothing an added constant without template can match, with type labels it may still match a type pattern
+        return guard(callSite, invocationType, List.of(enumClass), constantsOnly ? labels.length : -1);
+    }
+
+    /**
+     * replacement for {@link SwitchBootstraps#typeSwitch(MethodHandles.Lookup, String, MethodType, Object...)}
+     *
+     * @param lookup         the caller lookup
+     * @param invocationName unused
+     * @param invocationType <code>(T, int)int</code>
+     * @param labels         the case labels
+     * @return the guarded call site, or the original call site when no enum constants are used as labels
+     */
+    public static CallSite typeSwitch(MethodHandles.Lookup lookup, String invocationName, MethodType invocationType, Object... labels) {
+        CallSite callSite = SwitchBootstraps.typeSwitch(lookup, invocationName, invocationType, labels);
+        List<Class<?>> enumClasses = new ArrayList<>();
+        for (Object label : labels) {
+            if (label instanceof Enum.EnumDesc<?> enumDesc) {
+                try {
+                    Class<?> enumClass = enumDesc.constantType().resolveConstantDesc(lookup);
+                    if (!enumClasses.contains(enumClass)) {
+                        enumClasses.add(enumClass);
+                    }
+                } catch (ReflectiveOperationException ignored) {
+                    // the original call site will not match this label either
+                }
+            }
+        }
+        if (enumClasses.isEmpty()) {
+            return callSite;
+        } else {
+            // patterns may still match added constants without a template, so those always go to the original call site
+            return guard(callSite, invocationType, enumClasses, -1);
+        }
+    }
+
+    private static CallSite guard(CallSite callSite, MethodType invocationType, List<Class<?>> enumClasses, int defaultIndex) {
+        EnumConstructionPlan<?>[] plans = new EnumConstructionPlan<?>[enumClasses.size()];
+        for (int i = 0; i < plans.length; i++) {
+            plans[i] = EnumConstructionPlan.of(enumClasses.get(i).asSubclass(Enum.class));
+        }
+        MethodType genericType = MethodType.methodType(int.class, Object.class, int.class);
+        MethodHandle target = callSite.getTarget().asType(genericType);
+        AddedConstantGuard guard = new AddedConstantGuard(plans, target, defaultIndex);
+        MethodHandle test = MethodHandles.dropArguments(IS_ADDED.bindTo(guard), 1, int.class);
+        MethodHandle guardedTarget = MethodHandles.guardWithTest(test, SWITCH_ADDED.bindTo(guard), target);
+        return new ConstantCallSite(guardedTarget.asType(invocationType));
+    }
+
+    /**
+     * guards a single switch call site against constants added at runtime
+     *
+     * @param plans        plans for all enum classes the switch has constant labels for
+     * @param target       the original call site target
+     * @param defaultIndex index of the default branch for added constants without template, <code>-1</code> to pass them to <code>target</code>
+     */
+    private record AddedConstantGuard(EnumConstructionPlan<?>[] plans, MethodHandle target, int defaultIndex) {
+
+        boolean isAdded(Object selector) {
+            return this.getPlan(selector) != null;
+        }
+
+        @Nullable
+        private EnumConstructionPlan<?> getPlan(Object selector) {
+            if (selector instanceof Enum<?> enumConstant) {
+                for (EnumConstructionPlan<?> plan : this.plans) {
+                    if (plan.enumClazz() == enumConstant.getDeclaringClass() && plan.isAdded(enumConstant)) {
+                        return plan;
+                    }
+                }
+            }
+            return null;
+        }
+
+        int switchAdded(Object selector, int restartIndex) throws Throwable {
+            EnumConstructionPlan<?> plan = this.getPlan(selector);
+            Enum<?> fallback = plan != null ? plan.getSwitchFallback(selector) : null;
+            if (fallback != null) {
+                return (int) this.target.invokeExact((Object) fallback, restartIndex);
+            } else if (this.defaultIndex != -1 && restartIndex <= this.defaultIndex) {
+                return this.defaultIndex;
+            } else {
+                return (int) this.target.invokeExact(selector, restartIndex);
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * replacement for {@link EnumMap} that keeps working when constants are added to the key type later on
+ * <p>an {@link EnumMap} sizes its backing array when it is constructed, so putting a constant added afterward throws an {@link ArrayIndexOutOfBoundsException},
+ * this map grows its ordinal-indexed array instead, whenever the generation stamp of the key type shows that constants have been added
+ * <p>lookups are as cheap as for an {@link EnumMap}, just like it this map is not thread-safe
+ *
+ * @param <K> type of enum constant used as key
+ * @param <V> type of value
+ */
+public final class ExtensibleEnumMap<K extends Enum<K>, V> extends AbstractMap<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExtensibleEnumMap.class);
+    /**
+     * opt-in via <code>-Dextensibleenums.debugEnumMaps=true</code>, looks for static {@link EnumMap} fields that have become stale after every addition
+     */
+    static final boolean DEBUG_STALE_ENUM_MAPS = Boolean.getBoolean("extensibleenums.debugEnumMaps");
+    /**
+     * the key universe {@link EnumMap} captures on construction, <code>-1</code> when the field does not exist in the running Java version
+     */
+    private static final long KEY_UNIVERSE_OFFSET = findFieldOffset("keyUniverse");
+    /**
+     * the key type of an {@link EnumMap}, <code>-1</code> when the field does not exist in the running Java version
+     */
+    private static final long KEY_TYPE_OFFSET = findFieldOffset("keyType");
+    /**
+     * stands in for <code>null</code> values, so that <code>null</code> can mean absent in {@link #vals}
+     */
+    private static final Object NULL = new Object();
+
+    private final Class<K> keyType;
+    private final EnumConstructionPlan<K> plan;
+    /**
+     * all constants of {@link #keyType} as of {@link #generation}
+     */
+    private K[] keyUniverse;
+    /**
+     * values indexed by ordinal, always as long as {@link #keyUniverse}, so every present value has a key
+     */
+    private Object[] vals;
+    private int size;
+    /**
+     * generation of the key type {@link #keyUniverse} has been read at
+     */
+    private int generation;
+
+    /**
+     * @param keyType the enum class used as key
+     */
+    public ExtensibleEnumMap(Class<K> keyType) {
+        Objects.requireNonNull(keyType, "key type is null");
+        this.keyType = keyType;
+        this.plan = EnumConstructionPlan.of(keyType);
+        this.generation = this.plan.generation();
+        this.keyUniverse = this.plan.values();
+        this.vals = new Object[this.keyUniverse.length];
+    }
+
+    /**
+     * @param map map to copy all mappings from
+     */
+    public ExtensibleEnumMap(ExtensibleEnumMap<K, ? extends V> map) {
+        this(map.keyType);
+        this.putAll(map);
+    }
+
+    /**
+     * test if an {@link EnumMap} has been created before constants have been added to its key type,
+     * putting any of the new constants will then fail
+     *
+     * @param enumMap the map to test
+     * @return is the map missing some constants of its key type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static boolean isStale(EnumMap<?, ?> enumMap) {
+        if (KEY_UNIVERSE_OFFSET == -1L || KEY_TYPE_OFFSET == -1L) return false;
+        Object[] keyUniverse = (Object[]) UnsafeExtensibleEnum.UNSAFE.getObject(enumMap, KEY_UNIVERSE_OFFSET);
+        Class keyType = (Class) UnsafeExtensibleEnum.UNSAFE.getObject(enumMap, KEY_TYPE_OFFSET);
+        return keyUniverse.length < EnumConstructionPlan.of(keyType).values().length;
+    }
+
+    /**
+     * log all static {@link EnumMap} fields in some classes that have been created before constants have been added to <code>enumClass</code>
+     * <p>fields are read without initializing any class, so classes that have not been initialized yet are skipped, their maps will be created with all constants anyway
+     *
+     * @param enumClass the enum class constants have been added to
+     * @param suspects  classes to check, together with all their nest members
+     */
+    static void reportStaleEnumMaps(Class<?> enumClass, Collection<Class<?>> suspects) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Class<?> suspect : suspects) {
+            classes.addAll(Arrays.asList(suspect.getNestHost().getNestMembers()));
+        }
+        for (Class<?> clazz : classes) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType().isAssignableFrom(EnumMap.class)) {
+                    Object value = UnsafeExtensibleEnum.UNSAFE.getObject(UnsafeExtensibleEnum.UNSAFE.staticFieldBase(field), UnsafeExtensibleEnum.UNSAFE.staticFieldOffset(field));
+                    if (value instanceof EnumMap<?, ?> enumMap && isStale(enumMap)) {
+                        LOGGER.warn("{}.{} is an EnumMap created before constants have been added to enum class {}, putting new constants will fail, use ExtensibleEnumMap instead", clazz.getName(), field.getName(), enumClass.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    private static long findFieldOffset(String name) {
+        try {
+            return UnsafeExtensibleEnum.UNSAFE.objectFieldOffset(EnumMap.class.getDeclaredField(name));
+        } catch (NoSuchFieldException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * read the current constants of the key type if any have been added since the last time, and grow the backing array to fit them
+     */
+    private void updateKeyUniverse() {
+        int generation = this.plan.generation();
+        if (generation != this.generation) {
+            this.generation = generation;
+            this.keyUniverse = this.plan.values();
+            if (this.vals.length < this.keyUniverse.length) {
+                this.vals = Arrays.copyOf(this.vals, this.keyUniverse.length);
+            }
+        }
+    }
+
+    private boolean isValidKey(Object key) {
+        return key != null && (key.getClass() == this.keyType || key.getClass().getSuperclass() == this.keyType);
+    }
+
+    private static Object maskNull(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unmaskNull(Object value) {
+        return value == NULL ? null : (V) value;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!this.isValidKey(key)) return false;
+        int ordinal = ((Enum<?>) key).ordinal();
+        return ordinal < this.vals.length && this.vals[ordinal] != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Object maskedValue = maskNull(value);
+        for (Object val : this.vals) {
+            if (maskedValue.equals(val)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!this.isValidKey(key)) return null;
+        int ordinal = ((Enum<?>) key).ordinal();
+        return ordinal < this.vals.length ? this.unmaskNull(this.vals[ordinal]) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key is null");
+        if (!this.isValidKey(key)) throw new ClassCastException(key.getClass() + " != " + this.keyType);
+        int ordinal = key.ordinal();
+        if (ordinal >= this.vals.length) {
+            this.updateKeyUniverse();
+        }
+        Object oldValue = this.vals[ordinal];
+        this.vals[ordinal] = maskNull(value);
+        if (oldValue == null) this.size++;
+        return this.unmaskNull(oldValue);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!this.isValidKey(key)) return null;
+        int ordinal = ((Enum<?>) key).ordinal();
+        if (ordinal >= this.vals.length) return null;
+        Object oldValue = this.vals[ordinal];
+        this.vals[ordinal] = null;
+        if (oldValue != null) this.size--;
+        return this.unmaskNull(oldValue);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.vals, null);
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ExtensibleEnumMap.this.size;
+            }
+
+            @Override
+            public void clear() {
+                ExtensibleEnumMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * iterates in ordinal order, like {@link EnumMap}
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private int index;
+        private int lastReturnedIndex = -1;
+
+        @Override
+        public boolean hasNext() {
+            Object[] vals = ExtensibleEnumMap.this.vals;
+            while (this.index < vals.length && vals[this.index] == null) {
+                this.index++;
+            }
+            return this.index < vals.length;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!this.hasNext()) throw new NoSuchElementException();
+            this.lastReturnedIndex = this.index++;
+            return new EntryImpl(this.lastReturnedIndex);
+        }
+
+        @Override
+        public void remove() {
+            if (this.lastReturnedIndex == -1) throw new IllegalStateException();
+            if (ExtensibleEnumMap.this.vals[this.lastReturnedIndex] != null) {
+                ExtensibleEnumMap.this.vals[this.lastReturnedIndex] = null;
+                ExtensibleEnumMap.this.size--;
+            }
+            this.lastReturnedIndex = -1;
+        }
+    }
+
+    /**
+     * entry writing through to the map
+     */
+    private final class EntryImpl implements Entry<K, V> {
+        private final int index;
+
+        private EntryImpl(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public K getKey() {
+            return ExtensibleEnumMap.this.keyUniverse[this.index];
+        }
+
+        @Override
+        public V getValue() {
+            return ExtensibleEnumMap.this.unmaskNull(ExtensibleEnumMap.this.vals[this.index]);
+        }
+
+        @Override
+        public V setValue(V value) {
+            Object oldValue = ExtensibleEnumMap.this.vals[this.index];
+            ExtensibleEnumMap.this.vals[this.index] = maskNull(value);
+            return ExtensibleEnumMap.this.unmaskNull(oldValue);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry && Objects.equals(this.getKey(), entry.getKey()) && Objects.equals(this.getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.getKey()) ^ Objects.hashCode(this.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return this.getKey() + "=" + this.getValue();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * replacement for {@link EnumSet} that keeps working when constants are added to the element type later on
+ * <p>an {@link EnumSet} picks a single <code>long</code> bitmask for up to 64 constants when it is created, which silently wraps around once the enum class grows past that,
+ * this set always uses an array of words instead, which is grown when constants are added, so small enums still only need a single word
+ * <p>membership tests and bulk operations between sets of the same element type never allocate, just like an {@link EnumSet} this set is not thread-safe
+ *
+ * @param <E> type of enum constant
+ */
+public final class ExtensibleEnumSet<E extends Enum<E>> extends AbstractSet<E> {
+    private final Class<E> elementType;
+    private final EnumConstructionPlan<E> plan;
+    /**
+     * all constants of {@link #elementType} as of {@link #generation}
+     */
+    private E[] universe;
+    /**
+     * bit per ordinal, always enough words for all of {@link #universe}
+     */
+    private long[] words;
+    /**
+     * generation of the element type {@link #universe} has been read at
+     */
+    private int generation;
+
+    private ExtensibleEnumSet(Class<E> elementType) {
+        Objects.requireNonNull(elementType, "element type is null");
+        this.elementType = elementType;
+        this.plan = EnumConstructionPlan.of(elementType);
+        this.generation = this.plan.generation();
+        this.universe = this.plan.values();
+        this.words = new long[wordCount(this.universe.length)];
+    }
+
+    /**
+     * @param elementType the enum class
+     * @param <E>         type of enum constant
+     * @return a new empty set
+     */
+    public static <E extends Enum<E>> ExtensibleEnumSet<E> noneOf(Class<E> elementType) {
+        return new ExtensibleEnumSet<>(elementType);
+    }
+
+    /**
+     * @param elementType the enum class
+     * @param <E>         type of enum constant
+     * @return a new set containing all constants currently present in the enum class
+     */
+    public static <E extends Enum<E>> ExtensibleEnumSet<E> allOf(Class<E> elementType) {
+        ExtensibleEnumSet<E> set = new ExtensibleEnumSet<>(elementType);
+        int size = set.universe.length;
+        Arrays.fill(set.words, -1L);
+        if ((size & 63) != 0) {
+            set.words[set.words.length - 1] = -1L >>> -size;
+        }
+        return set;
+    }
+
+    /**
+     * @param first the first element
+     * @param rest  all other elements
+     * @param <E>   type of enum constant
+     * @return a new set containing all elements
+     */
+    @SafeVarargs
+    public static <E extends Enum<E>> ExtensibleEnumSet<E> of(E first, E... rest) {
+        ExtensibleEnumSet<E> set = new ExtensibleEnumSet<>(first.getDeclaringClass());
+        set.add(first);
+        for (E e : rest) {
+            set.add(e);
+        }
+        return set;
+    }
+
+    /**
+     * @param set the set to copy
+     * @param <E> type of enum constant
+     * @return a new set containing the same elements
+     */
+    public static <E extends Enum<E>> ExtensibleEnumSet<E> copyOf(ExtensibleEnumSet<E> set) {
+        ExtensibleEnumSet<E> copy = new ExtensibleEnumSet<>(set.elementType);
+        copy.addAll(set);
+        return copy;
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * read the current constants of the element type if any have been added since the last time, and grow the words to fit them
+     */
+    private void updateUniverse() {
+        int generation = this.plan.generation();
+        if (generation != this.generation) {
+            this.generation = generation;
+            this.universe = this.plan.values();
+            int wordCount = wordCount(this.universe.length);
+            if (this.words.length < wordCount) {
+                this.words = Arrays.copyOf(this.words, wordCount);
+            }
+        }
+    }
+
+    private boolean isValidElement(Object o) {
+        return o != null && (o.getClass() == this.elementType || o.getClass().getSuperclass() == this.elementType);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!this.isValidElement(o)) return false;
+        int ordinal = ((Enum<?>) o).ordinal();
+        int wordIndex = ordinal >>> 6;
+        return wordIndex < this.words.length && (this.words[wordIndex] & (1L << ordinal)) != 0L;
+    }
+
+    @Override
+    public boolean add(E e) {
+        Objects.requireNonNull(e, "element is null");
+        if (!this.isValidElement(e)) throw new ClassCastException(e.getClass() + " != " + this.elementType);
+        int ordinal = e.ordinal();
+        if (ordinal >= this.universe.length) {
+            this.updateUniverse();
+        }
+        int wordIndex = ordinal >>> 6;
+        long oldWord = this.words[wordIndex];
+        this.words[wordIndex] = oldWord | (1L << ordinal);
+        return this.words[wordIndex] != oldWord;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!this.isValidElement(o)) return false;
+        int ordinal = ((Enum<?>) o).ordinal();
+        int wordIndex = ordinal >>> 6;
+        if (wordIndex >= this.words.length) return false;
+        long oldWord = this.words[wordIndex];
+        this.words[wordIndex] = oldWord & ~(1L << ordinal);
+        return this.words[wordIndex] != oldWord;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (long word : this.words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long word : this.words) {
+            if (word != 0L) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.words, 0L);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof ExtensibleEnumSet<?> set && set.elementType == this.elementType) {
+            for (int i = 0; i < set.words.length; i++) {
+                long word = i < this.words.length ? this.words[i] : 0L;
+                if ((set.words[i] & ~word) != 0L) return false;
+            }
+            return true;
+        } else {
+            return super.containsAll(c);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (c instanceof ExtensibleEnumSet<?> set && set.elementType == this.elementType) {
+            if (set.words.length > this.words.length) {
+                this.updateUniverse();
+            }
+            boolean modified = false;
+            for (int i = 0; i < set.words.length; i++) {
+                long oldWord = this.words[i];
+                this.words[i] = oldWord | set.words[i];
+                modified |= this.words[i] != oldWord;
+            }
+            return modified;
+        } else {
+            return super.addAll(c);
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c instanceof ExtensibleEnumSet<?> set && set.elementType == this.elementType) {
+            boolean modified = false;
+            for (int i = 0; i < Math.min(this.words.length, set.words.length); i++) {
+                long oldWord = this.words[i];
+                this.words[i] = oldWord & ~set.words[i];
+                modified |= this.words[i] != oldWord;
+            }
+            return modified;
+        } else {
+            return super.removeAll(c);
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c instanceof ExtensibleEnumSet<?> set && set.elementType == this.elementType) {
+            boolean modified = false;
+            for (int i = 0; i < this.words.length; i++) {
+                long oldWord = this.words[i];
+                this.words[i] = oldWord & (i < set.words.length ? set.words[i] : 0L);
+                modified |= this.words[i] != oldWord;
+            }
+            return modified;
+        } else {
+            return super.retainAll(c);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ExtensibleEnumSet<?> set && set.elementType == this.elementType) {
+            int wordCount = Math.max(this.words.length, set.words.length);
+            for (int i = 0; i < wordCount; i++) {
+                long word = i < this.words.length ? this.words[i] : 0L;
+                long otherWord = i < set.words.length ? set.words[i] : 0L;
+                if (word != otherWord) return false;
+            }
+            return true;
+        } else {
+            return super.equals(o);
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        // bits for constants added since the universe has last been read may have been set via a word that was already there
+        this.updateUniverse();
+        return new Iterator<>() {
+            private int nextOrdinal = this.findNext(0);
+            private int lastReturnedOrdinal = -1;
+
+            private int findNext(int fromOrdinal) {
+                long[] words = ExtensibleEnumSet.this.words;
+                int wordIndex = fromOrdinal >>> 6;
+                if (wordIndex >= words.length) return -1;
+                long word = words[wordIndex] & (-1L << fromOrdinal);
+                while (true) {
+                    if (word != 0L) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                    if (++wordIndex == words.length) return -1;
+                    word = words[wordIndex];
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.nextOrdinal != -1;
+            }
+
+            @Override
+            public E next() {
+                if (this.nextOrdinal == -1) throw new NoSuchElementException();
+                this.lastReturnedOrdinal = this.nextOrdinal;
+                this.nextOrdinal = this.findNext(this.nextOrdinal + 1);
+                return ExtensibleEnumSet.this.universe[this.lastReturnedOrdinal];
+            }
+
+            @Override
+            public void remove() {
+                if (this.lastReturnedOrdinal == -1) throw new IllegalStateException();
+                ExtensibleEnumSet.this.words[this.lastReturnedOrdinal >>> 6] &= ~(1L << this.lastReturnedOrdinal);
+                this.lastReturnedOrdinal = -1;
+            }
+        };
+    }
+}
@@ -0,0 +1,300 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import fuzs.extensibleenums.impl.scanner.MappedJarReader;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * an index of all javac switch map arrays (the synthetic <code>$SwitchMap$</code> fields) found in a set of jars and class directories,
+ * so that switch statements over an enum can be updated after adding constants without the caller having to know every class switching over it
+ * <p>switch maps are found from their static initializer instead of their name, as names may have been changed by obfuscation,
+ * results are cached on disk per jar and only jars that changed since are scanned again
+ * <p>install an index via {@link #install(SwitchMapIndex)} as early as possible, {@link UnsafeExtensibleEnum#updateRelatedSwitchStatements} will then patch all indexed switch maps
+ */
+public final class SwitchMapIndex {
+    /**
+     * bump whenever the cache format or what is indexed changes
+     */
+    private static final String CACHE_HEADER = "switch-map-index-v1";
+    /**
+     * {@link ClassLoader#findLoadedClass(String)}, so switch maps that have not been loaded yet are not loaded just for being patched,
+     * they are going to be initialized with the correct size once they are used anyway
+     */
+    private static final MethodHandle FIND_LOADED_CLASS;
+    @Nullable
+    private static volatile SwitchMapIndex instance;
+
+    static {
+        try {
+            FIND_LOADED_CLASS = UnsafeExtensibleEnum.privateLookupIn(ClassLoader.class).findVirtual(ClassLoader.class, "findLoadedClass", MethodType.methodType(Class.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * switch map fields per internal name of the enum class they are for
+     */
+    private final Map<String, List<SwitchMapField>> switchMapFields;
+
+    private SwitchMapIndex(Map<String, List<SwitchMapField>> switchMapFields) {
+        this.switchMapFields = switchMapFields;
+    }
+
+    /**
+     * build a new index by scanning all classes in <code>paths</code>, jars are scanned in parallel
+     *
+     * @param paths     jar files and class directories to index
+     * @param cacheFile file for caching results for unchanged jars across runs, can be <code>null</code> to disable caching
+     * @return the new index
+     *
+     * @throws IOException reading a jar or directory failed
+     */
+    public static SwitchMapIndex build(Collection<Path> paths, @Nullable Path cacheFile) throws IOException {
+        Map<JarKey, List<SwitchMapField>> cachedJars = cacheFile != null ? readCache(cacheFile) : Map.of();
+        Map<JarKey, List<SwitchMapField>> scannedJars = Collections.synchronizedMap(new HashMap<>());
+        List<SwitchMapField> switchMapFields;
+        try {
+            switchMapFields = paths.parallelStream().distinct().flatMap((Path path) -> {
+                try {
+                    if (Files.isDirectory(path)) {
+                        return scanDirectory(path).stream();
+                    } else {
+                        JarKey jarKey = JarKey.of(path);
+                        List<SwitchMapField> jarSwitchMapFields = cachedJars.get(jarKey);
+                        if (jarSwitchMapFields == null) {
+                            jarSwitchMapFields = scanJar(path);
+                        }
+                        scannedJars.put(jarKey, jarSwitchMapFields);
+                        return jarSwitchMapFields.stream();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (cacheFile != null && !scannedJars.equals(cachedJars)) {
+            writeCache(cacheFile, scannedJars);
+        }
+        return new SwitchMapIndex(switchMapFields.stream().distinct().collect(Collectors.groupingBy(SwitchMapField::enumName)));
+    }
+
+    /**
+     * install an index to be used whenever constants are added to an enum class
+     *
+     * @param index the index
+     */
+    public static void install(SwitchMapIndex index) {
+        Objects.requireNonNull(index, "index is null");
+        instance = index;
+    }
+
+    /**
+     * @return the installed index, <code>null</code> if none has been installed
+     */
+    @Nullable
+    static SwitchMapIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * find all switch map fields for an enum class whose declaring class has already been loaded
+     *
+     * @param enumClass the enum class
+     * @return fields containing the switch cases as an array, already made accessible
+     */
+    Collection<Field> findLoadedSwitchFields(Class<? extends Enum<?>> enumClass) {
+        List<SwitchMapField> switchMapFields = this.switchMapFields.getOrDefault(Type.getInternalName(enumClass), List.of());
+        if (switchMapFields.isEmpty()) return List.of();
+        ClassLoader classLoader = enumClass.getClassLoader() != null ? enumClass.getClassLoader() : ClassLoader.getSystemClassLoader();
+        Collection<Field> result = new ArrayList<>();
+        for (SwitchMapField switchMapField : switchMapFields) {
+            Class<?> clazz = findLoadedClass(classLoader, switchMapField.owner().replace('/', '.'));
+            if (clazz != null) {
+                try {
+                    Field field = clazz.getDeclaredField(switchMapField.name());
+                    field.setAccessible(true);
+                    result.add(field);
+                } catch (NoSuchFieldException ignored) {
+                    // class has been transformed, or index is outdated
+                }
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Class<?> findLoadedClass(ClassLoader classLoader, String className) {
+        try {
+            return (Class<?>) FIND_LOADED_CLASS.invokeExact(classLoader, className);
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+
+    private static List<SwitchMapField> scanJar(Path path) throws IOException {
+        List<SwitchMapField> switchMapFields = new ArrayList<>();
+        MappedJarReader.forEachClass(path, (String name, byte[] classBytes) -> {
+            scanClass(classBytes, switchMapFields);
+        });
+        return switchMapFields;
+    }
+
+    private static List<SwitchMapField> scanDirectory(Path path) throws IOException {
+        List<SwitchMapField> switchMapFields = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                if (file.toString().endsWith(".class")) {
+                    scanClass(Files.readAllBytes(file), switchMapFields);
+                }
+            }
+        }
+        return switchMapFields;
+    }
+
+    /**
+     * javac places switch maps in a synthetic class, initialized like this:
+     * <code>invokestatic Enum.values()</code>, <code>arraylength</code>, <code>newarray int</code>, <code>putstatic $SwitchMap$...</code>
+     *
+     * @param classBytes      the class file
+     * @param switchMapFields collects all found switch map fields
+     */
+    private static void scanClass(byte[] classBytes, List<SwitchMapField> switchMapFields) {
+        ClassReader classReader;
+        try {
+            classReader = new ClassReader(classBytes);
+        } catch (RuntimeException e) {
+            // not a valid class file, e.g. a multi-release jar entry for a future class file version
+            return;
+        }
+        if ((classReader.getAccess() & Opcodes.ACC_SYNTHETIC) == 0) return;
+        String owner = classReader.getClassName();
+        classReader.accept(new ClassVisitor(Opcodes.ASM9) {
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (!name.equals("<clinit>")) return null;
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Nullable
+                    private String enumName;
+
+                    @Override
+                    public void visitMethodInsn(int opcode, String methodOwner, String methodName, String methodDescriptor, boolean isInterface) {
+                        if (opcode == Opcodes.INVOKESTATIC && methodName.equals("values") && methodDescriptor.equals("()[L" + methodOwner + ";")) {
+                            this.enumName = methodOwner;
+                        } else {
+                            this.enumName = null;
+                        }
+                    }
+
+                    @Override
+                    public void visitFieldInsn(int opcode, String fieldOwner, String fieldName, String fieldDescriptor) {
+                        if (this.enumName != null && opcode == Opcodes.PUTSTATIC && fieldOwner.equals(owner) && fieldDescriptor.equals("[I")) {
+                            switchMapFields.add(new SwitchMapField(this.enumName, owner, fieldName));
+                        }
+                        this.enumName = null;
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private static Map<JarKey, List<SwitchMapField>> readCache(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) return Map.of();
+        Map<JarKey, List<SwitchMapField>> cachedJars = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!CACHE_HEADER.equals(reader.readLine())) return Map.of();
+            List<SwitchMapField> switchMapFields = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts[0].equals("J") && parts.length == 4) {
+                    switchMapFields = new ArrayList<>();
+                    cachedJars.put(new JarKey(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3])), switchMapFields);
+                } else if (parts[0].equals("S") && parts.length == 4 && switchMapFields != null) {
+                    switchMapFields.add(new SwitchMapField(parts[1], parts[2], parts[3]));
+                } else {
+                    return Map.of();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // just scan everything again
+            return Map.of();
+        }
+        return cachedJars;
+    }
+
+    private static void writeCache(Path cacheFile, Map<JarKey, List<SwitchMapField>> scannedJars) throws IOException {
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporaryFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            writer.write(CACHE_HEADER);
+            writer.newLine();
+            for (Map.Entry<JarKey, List<SwitchMapField>> entry : scannedJars.entrySet()) {
+                JarKey jarKey = entry.getKey();
+                writer.write(String.join("\t", "J", jarKey.path(), Long.toString(jarKey.size()), Long.toString(jarKey.lastModified())));
+                writer.newLine();
+                for (SwitchMapField switchMapField : entry.getValue()) {
+                    writer.write(String.join("\t", "S", switchMapField.enumName(), switchMapField.owner(), switchMapField.name()));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * a switch map field
+     *
+     * @param enumName internal name of the enum class the switch map is for
+     * @param owner    internal name of the class declaring the field
+     * @param name     field name
+     */
+    record SwitchMapField(String enumName, String owner, String name) {
+
+    }
+
+    /**
+     * identifies a jar for the on-disk cache, a jar is scanned again when it is replaced or modified
+     *
+     * @param path         absolute jar path
+     * @param size         file size
+     * @param lastModified last modified time in milliseconds
+     */
+    private record JarKey(String path, long size, long lastModified) {
+
+        static JarKey of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new JarKey(path.toAbsolutePath().toString(), attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+}
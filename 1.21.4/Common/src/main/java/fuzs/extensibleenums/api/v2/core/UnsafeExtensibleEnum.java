@@ -1,8 +1,12 @@
 package fuzs.extensibleenums.api.v2.core;
 
-import org.objectweb.asm.Opcodes;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sun.misc.Unsafe;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.*;
@@ -10,18 +14,45 @@ import java.util.*;
 /**
  * a helper class for extending enums, this uses {@link Unsafe} as reflection is no longer a viable option for extending enums in Java 12+
  * only use for enums which are not used in switch statements since they will break otherwise (mainly the newer fancy ones where the default case can be omitted)
+ * <p>the JIT treats static final fields like <code>$VALUES</code> as constants, so code compiled before an addition may keep using the old values array,
+ * adding constants is therefore only guaranteed to be seen everywhere when done before the enum class is used, e.g. during mod construction,
+ * late additions are reported with a warning, code that needs to see those reliably should read values via {@link #getEnumValuesGetter(Class)}
  */
 public final class UnsafeExtensibleEnum {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnsafeExtensibleEnum.class);
     /**
      * the unsafe referent required for most operations
      */
-    private static final Unsafe UNSAFE;
+    static final Unsafe UNSAFE;
+    /**
+     * object field offset for {@link Enum#ordinal}, resolved once as it is needed for every new constant
+     */
+    static final long ENUM_ORDINAL_OFFSET;
+    /**
+     * object field offset for {@link Enum#name}, resolved once as it is needed for every new constant
+     */
+    static final long ENUM_NAME_OFFSET;
+    /**
+     * object field offsets for the {@link Class} caches backing {@link Class#getEnumConstants()} and {@link Enum#valueOf(Class, String)},
+     * resolved once as they are needed after every addition, <code>-1</code> when a field does not exist in the running Java version
+     */
+    private static final long ENUM_CONSTANT_DIRECTORY_OFFSET;
+    private static final long ENUM_CONSTANTS_OFFSET;
+    /**
+     * opt-in via <code>-Dextensibleenums.strictEnumSetBoundary=true</code>, fail instead of warn when an addition pushes an enum class past 64 constants
+     * after it might have been used in an {@link EnumSet}
+     */
+    private static final boolean STRICT_ENUM_SET_BOUNDARY = Boolean.getBoolean("extensibleenums.strictEnumSetBoundary");
 
     static {
         try {
             Constructor<?> constructor = Unsafe.class.getDeclaredConstructors()[0];
             constructor.setAccessible(true);
             UNSAFE = (Unsafe) constructor.newInstance();
+            ENUM_ORDINAL_OFFSET = UNSAFE.objectFieldOffset(Enum.class.getDeclaredField("ordinal"));
+            ENUM_NAME_OFFSET = UNSAFE.objectFieldOffset(Enum.class.getDeclaredField("name"));
+            ENUM_CONSTANT_DIRECTORY_OFFSET = findField(Class.class, "enumConstantDirectory").map(UNSAFE::objectFieldOffset).orElse(-1L);
+            ENUM_CONSTANTS_OFFSET = findField(Class.class, "enumConstants").map(UNSAFE::objectFieldOffset).orElse(-1L);
         }
         catch (Throwable throwable) {
             throw new RuntimeException(throwable);
@@ -92,56 +123,176 @@ public final class UnsafeExtensibleEnum {
      * @throws Throwable something went wrong during unsafe operations oh no
      */
     public static <T extends Enum<T>> T invokeEnumConstructor(Class<T> enumMainClass, Class<? extends T> enumConcreteClass, String internalName, int internalId) throws Throwable {
-        T enumValue = enumMainClass.cast(UNSAFE.allocateInstance(enumConcreteClass));
-        boolean addToEnumValues = internalId == -1;
-        if (addToEnumValues) {
-            internalId = addToEnumValues(enumMainClass, enumValue, internalName);
-        }
-        initEnumFields(enumValue, internalName, internalId);
-        if (addToEnumValues) {
-            cleanEnumCache(enumMainClass);
+        if (internalId == -1) {
+            return appendEnumConstants(enumMainClass, Collections.singletonList(internalName), (String name, int ordinal) -> {
+                return invokeEnumConstructor(enumMainClass, enumConcreteClass, name, ordinal);
+            }).get(0);
+        } else {
+            T enumValue = enumMainClass.cast(UNSAFE.allocateInstance(enumConcreteClass));
+            initEnumFields(enumValue, internalName, internalId);
+            return enumValue;
         }
-        return enumValue;
     }
 
     /**
-     * add new enum constant to enum values array
+     * create multiple new enum constants and add them to the enum values array in a single step
+     * the values array is only copied once, and the enum cache is only refilled once for the whole batch
+     * <p>appending is atomic per enum class: the whole read-copy-write of <code>$VALUES</code> happens while holding a private lock for <code>enumMainClass</code>,
+     * so concurrent appends from parallel mod initialization can neither lose constants nor hand out an ordinal twice,
+     * callers can hold the same lock via {@link #runLocked(Class, Runnable)} to combine reading the current values with an append
+     * <p>all new constants are fully created by <code>factory</code> before they are published with volatile semantics,
+     * so other threads never observe a constant in <code>values()</code> whose fields are still being written
      *
-     * @param enumMainClass enum class containing internal <code>$VALUES</code> field for adding our new constant
-     * @param enumValue enum constant to add
-     * @param internalName  name required for verifying no enum constant of the same name already exists
+     * @param enumMainClass enum class containing internal <code>$VALUES</code> field for adding our new constants
+     * @param internalNames names of the new enum values, ordinals are assigned in iteration order
+     * @param factory creates an enum constant for a name and the ordinal it is going to be added at
      * @param <T> enum type
-     * @return ordinal position <code>enumValue</code> was added to <code>$VALUES</code> at
+     * @return the new enum constants in the same order as <code>internalNames</code>
      *
-     * @throws ReflectiveOperationException thrown by reflective operations
+     * @throws Throwable something went wrong during unsafe operations oh no
      */
-    @SuppressWarnings("unchecked")
-    private static <T extends Enum<T>> int addToEnumValues(Class<T> enumMainClass, T enumValue, String internalName) throws ReflectiveOperationException {
-        // don't test for final and private, some mixin accessor / access wideners might make the field mutable, removing the flag
-        final int valuesFieldModifiers = Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
-        for (Field field : enumMainClass.getDeclaredFields()) {
-            // we don't go looking for $VALUES field by name as Proguard will probably mess with that name
-            if (field.getType().isArray() && (field.getModifiers() & valuesFieldModifiers) == valuesFieldModifiers) {
-                field.setAccessible(true);
-                // does not work in Java 12+ due to private field members of Field.class no longer being accessible via reflection
-//                Field modifiers = field.getClass().getDeclaredField("modifiers");
-//                modifiers.setAccessible(true);
-//                modifiers.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-                T[] values = (T[]) field.get(null);
-                for (T value : values) {
-                    if (value.name().equals(internalName)) {
-                        throw new IllegalArgumentException(String.format("%s already exists in enum class %s", internalName, enumMainClass.getName()));
-                    }
+    public static <T extends Enum<T>> List<T> appendEnumConstants(Class<T> enumMainClass, Collection<String> internalNames, ConstantFactory<T> factory) throws Throwable {
+        ensureInitialized(enumMainClass);
+        EnumConstructionPlan<T> plan = EnumConstructionPlan.of(enumMainClass);
+        synchronized (plan.lock()) {
+            Field valuesField = plan.valuesField();
+            @SuppressWarnings("unchecked")
+            T[] values = (T[]) valuesField.get(null);
+            Set<String> names = new HashSet<>(internalNames.size());
+            for (String internalName : internalNames) {
+                if (plan.findConstant(internalName) != null || !names.add(internalName)) {
+                    throw new IllegalArgumentException(String.format("%s already exists in enum class %s", internalName, enumMainClass.getName()));
                 }
-                T[] modifiedValues = Arrays.copyOf(values, values.length + 1);
-                modifiedValues[modifiedValues.length - 1] = enumValue;
-                // use more unsafe hacks here since modifying final fields no longer works via reflection
-//                field.set(null, modifiedValues);
-                setStaticObjectField(field, modifiedValues);
-                return values.length;
             }
+            if (values.length <= Long.SIZE && values.length + internalNames.size() > Long.SIZE) {
+                testEnumSetBoundary(enumMainClass, internalNames, STRICT_ENUM_SET_BOUNDARY);
+            }
+            T[] modifiedValues = Arrays.copyOf(values, values.length + internalNames.size());
+            plan.markAddedOrdinalStart(values.length);
+            int internalId = values.length;
+            for (String internalName : internalNames) {
+                modifiedValues[internalId] = factory.create(internalName, internalId);
+                internalId++;
+            }
+            // use more unsafe hacks here since modifying final fields no longer works via reflection
+//            valuesField.set(null, modifiedValues);
+            if (ENUM_CONSTANTS_OFFSET != -1L && plan.testLateAppend((Object[]) UNSAFE.getObjectVolatile(enumMainClass, ENUM_CONSTANTS_OFFSET))) {
+                LOGGER.warn("Adding {} to enum class {} after its values have already been used, code compiled in the meantime might not see the new constants", internalNames, enumMainClass.getName());
+            }
+            setStaticObjectField(valuesField, modifiedValues);
+            plan.updateValues(modifiedValues);
+            refillEnumCache(plan, modifiedValues, values.length);
+            return Collections.unmodifiableList(Arrays.asList(modifiedValues).subList(values.length, modifiedValues.length));
+        }
+    }
+
+    /**
+     * an {@link EnumSet} for an enum class with up to 64 constants is backed by a single <code>long</code>, where <code>1L &lt;&lt; 64</code> wraps around to <code>1L</code>,
+     * so existing sets silently confuse constants from ordinal 64 on with the first constants
+     * <p>enum sets take their universe from {@link Class#getEnumConstants()}'s cache, so when that is still empty no set can exist yet and crossing the boundary is fine
+     *
+     * @param enumMainClass the enum class about to cross 64 constants, must be called while holding its append lock
+     * @param internalNames names of the new enum values
+     * @param strict        throw instead of just logging a warning
+     */
+    static void testEnumSetBoundary(Class<?> enumMainClass, Collection<String> internalNames, boolean strict) {
+        if (ENUM_CONSTANTS_OFFSET == -1L || UNSAFE.getObjectVolatile(enumMainClass, ENUM_CONSTANTS_OFFSET) != null) {
+            String message = "Adding %s pushes enum class %s past %s constants after its values have already been used, existing EnumSets will confuse new constants with existing ones, use ExtensibleEnumSet instead".formatted(internalNames, enumMainClass.getName(), Long.SIZE);
+            if (strict) {
+                throw new IllegalStateException(message);
+            } else {
+                LOGGER.warn(message);
+            }
+        }
+    }
+
+    /**
+     * run an action while holding the lock all appends to an enum class are made under, appends from other threads wait until the action has finished
+     * <p>use this for keeping data derived from the enum values in sync, like a copy of <code>values()</code> some class stores in a static field,
+     * appending from within <code>action</code> is fine, the lock is reentrant
+     * <p>initializes the enum class first, as its static initializer might append constants, too
+     *
+     * @param enumMainClass the enum class
+     * @param action        the action to run
+     * @param <T>           enum type
+     */
+    public static <T extends Enum<T>> void runLocked(Class<T> enumMainClass, Runnable action) {
+        Objects.requireNonNull(action, "action is null");
+        ensureInitialized(enumMainClass);
+        synchronized (EnumConstructionPlan.of(enumMainClass).lock()) {
+            action.run();
+        }
+    }
+
+    /**
+     * get a method handle returning the current values of an enum class, including all constants added later on
+     * store the handle in a <code>static final</code> field and call it via <code>invokeExact</code>, the result can then be inlined by the JIT just like <code>$VALUES</code>,
+     * but compiled code is deoptimized whenever constants are added, so it never returns stale values
+     * the returned array is shared and must not be modified
+     *
+     * @param enumMainClass the enum class
+     * @param <T> enum type
+     * @return method handle of type <code>()T[]</code>
+     */
+    public static <T extends Enum<T>> MethodHandle getEnumValuesGetter(Class<T> enumMainClass) {
+        return EnumConstructionPlan.of(enumMainClass).getValuesGetter();
+    }
+
+    /**
+     * find an enum constant by name in constant time, including constants added later on
+     * unlike {@link Enum#valueOf(Class, String)} this does not fill the enum constant directory, so appending afterward is not reported as late
+     * <p>initializes the enum class
+     *
+     * @param enumMainClass the enum class
+     * @param internalName  name of the enum constant
+     * @param <T>           enum type
+     * @return the enum constant, <code>null</code> if there is none
+     */
+    @Nullable
+    public static <T extends Enum<T>> T findEnumConstant(Class<T> enumMainClass, String internalName) {
+        ensureInitialized(enumMainClass);
+        return EnumConstructionPlan.of(enumMainClass).findConstant(internalName);
+    }
+
+    /**
+     * @param enumConstant an enum constant
+     * @return has the constant been appended at runtime, instead of being created by the static initializer of its enum class
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static boolean isAppended(Enum<?> enumConstant) {
+        return EnumConstructionPlan.of((Class) enumConstant.getDeclaringClass()).isAdded(enumConstant);
+    }
+
+    /**
+     * initialize an enum class, unlike {@link Class#getEnumConstants()} this does not fill the enum constants cache
+     * must happen before taking the append lock of the enum class, as its static initializer might run queued extensions from {@link DeferredEnumExtensions}, which take that lock, too
+     *
+     * @param enumMainClass the enum class
+     */
+    public static void ensureInitialized(Class<?> enumMainClass) {
+        try {
+            Class.forName(enumMainClass.getName(), true, enumMainClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * get a lookup with private access to a class, required for invoking enum constructors
+     * falls back to the trusted lookup when the class' module does not open its package to us
+     *
+     * @param clazz the class to get a lookup for
+     * @return the lookup
+     *
+     * @throws ReflectiveOperationException thrown by reflective operations
+     */
+    static MethodHandles.Lookup privateLookupIn(Class<?> clazz) throws ReflectiveOperationException {
+        try {
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            Field field = MethodHandles.Lookup.class.getDeclaredField("IMPL_LOOKUP");
+            return (MethodHandles.Lookup) UNSAFE.getObject(UNSAFE.staticFieldBase(field), UNSAFE.staticFieldOffset(field));
         }
-        throw new IllegalAccessException("Could not find enum values field");
     }
 
     /**
@@ -150,18 +301,41 @@ public final class UnsafeExtensibleEnum {
      *
      * @param enumValue enum value to set fields for
      * @param internalName value name
-     * @param internalId ordinal id, this comes from {@link #addToEnumValues} depending on where in the internal <code>$VALUES</code> array our new constant has been added
-     * @throws ReflectiveOperationException thrown by reflective operations duh
+     * @param internalId ordinal id, this comes from {@link #appendEnumConstants} depending on where in the internal <code>$VALUES</code> array our new constant has been added
      */
-    private static void initEnumFields(Enum<?> enumValue, String internalName, int internalId) throws ReflectiveOperationException {
-        Field ordinalField = Enum.class.getDeclaredField("ordinal");
+    private static void initEnumFields(Enum<?> enumValue, String internalName, int internalId) {
 //        ordinalField.setAccessible(true);
 //        ordinalField.setInt(enumValue, internalId);
-        setIntField(ordinalField, enumValue, internalId);
-        Field nameField = Enum.class.getDeclaredField("name");
+        UNSAFE.putInt(enumValue, ENUM_ORDINAL_OFFSET, internalId);
 //        nameField.setAccessible(true);
 //        nameField.set(enumValue, internalName);
-        setObjectField(nameField, enumValue, internalName);
+        UNSAFE.putObject(enumValue, ENUM_NAME_OFFSET, internalName);
+    }
+
+    /**
+     * find a field by its type and position among all fields of that type declared in <code>enumClazz</code>, resolved the same way as {@link EnumAppender.FieldAccess}
+     * meant to be called once and the result stored, e.g. by code generated for {@link fuzs.extensibleenums.api.v2.ExtendEnum}
+     *
+     * @param enumClazz the enum class declaring the field
+     * @param clazz the field type
+     * @param ordinal position among fields of type <code>clazz</code>
+     * @return the field
+     */
+    public static Field findField(Class<? extends Enum<?>> enumClazz, Class<?> clazz, int ordinal) {
+        return Objects.requireNonNull(new EnumAppender.FieldAccess(ordinal, clazz).getField(enumClazz, enumClazz.getDeclaredFields()));
+    }
+
+    /**
+     * find the offset of a field by its type and position among all fields of that type declared in <code>enumClazz</code>, see {@link #findField(Class, Class, int)}
+     * meant to be called once and the result stored, so setting the field afterward does not have to look up the offset again
+     *
+     * @param enumClazz the enum class declaring the field
+     * @param clazz the field type
+     * @param ordinal position among fields of type <code>clazz</code>
+     * @return the field offset for the setters taking an offset
+     */
+    public static long findFieldOffset(Class<? extends Enum<?>> enumClazz, Class<?> clazz, int ordinal) {
+        return UNSAFE.objectFieldOffset(findField(enumClazz, clazz, ordinal));
     }
 
     /**
@@ -272,8 +446,108 @@ public final class UnsafeExtensibleEnum {
         UNSAFE.putDouble(instance, objectFieldOffset, newValue);
     }
 
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setObjectField(Object instance, long objectFieldOffset, Object newValue) {
+        UNSAFE.putObject(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setIntField(Object instance, long objectFieldOffset, int newValue) {
+        UNSAFE.putInt(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setBooleanField(Object instance, long objectFieldOffset, boolean newValue) {
+        UNSAFE.putBoolean(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setByteField(Object instance, long objectFieldOffset, byte newValue) {
+        UNSAFE.putByte(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setShortField(Object instance, long objectFieldOffset, short newValue) {
+        UNSAFE.putShort(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setCharField(Object instance, long objectFieldOffset, char newValue) {
+        UNSAFE.putChar(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setLongField(Object instance, long objectFieldOffset, long newValue) {
+        UNSAFE.putLong(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setFloatField(Object instance, long objectFieldOffset, float newValue) {
+        UNSAFE.putFloat(instance, objectFieldOffset, newValue);
+    }
+
+    /**
+     * set a value to a field at an offset from {@link #findFieldOffset(Class, Class, int)} using unsafe (since reflection will not work with final fields)
+     *
+     * @param instance instance field belongs to
+     * @param objectFieldOffset offset of the field
+     * @param newValue value to set
+     */
+    public static void setDoubleField(Object instance, long objectFieldOffset, double newValue) {
+        UNSAFE.putDouble(instance, objectFieldOffset, newValue);
+    }
+
     /**
      * set a value to a static field object using unsafe (since reflection will not work with final fields)
+     * the value is written with volatile semantics, so it is safely published to other threads
      *
      * @param field static field to set
      * @param newValue object value to set
@@ -281,22 +555,41 @@ public final class UnsafeExtensibleEnum {
     public static void setStaticObjectField(Field field, Object newValue) {
         final Object staticFieldBase = UNSAFE.staticFieldBase(field);
         final long staticFieldOffset = UNSAFE.staticFieldOffset(field);
-        UNSAFE.putObject(staticFieldBase, staticFieldOffset, newValue);
+        UNSAFE.putObjectVolatile(staticFieldBase, staticFieldOffset, newValue);
     }
 
     /**
-     * from Forge, probably supposed to clear enum cache used for switch statements
-     * not sure if this is needed, cache doesn't seem to be an issue (maybe with some compilers?)
+     * install the new enum values in the caches {@link Class} keeps for {@link Class#getEnumConstants()} and {@link Enum#valueOf(Class, String)}
+     * instead of clearing them, so the next access does not have to reflectively call <code>values()</code> and rebuild the directory from scratch
+     * the directory is copied and only receives the new constants when it has already been built, it is never modified in place as it may be read concurrently
      *
-     * @param enumClass enum class to clear cache for
+     * @param plan plan for the enum class to refill the cache for
+     * @param values all enum values including the new constants, as written to <code>$VALUES</code>
+     * @param fromIndex index of the first new constant in <code>values</code>
+     * @param <T> enum type
      */
-    private static void cleanEnumCache(Class<? extends Enum<?>> enumClass) {
-        findField(Class.class, "enumConstantDirectory").ifPresent(field -> {
-            setObjectField(field, enumClass, null);
-        });
-        findField(Class.class, "enumConstants").ifPresent(field -> {
-            setObjectField(field, enumClass, null);
-        });
+    private static <T extends Enum<T>> void refillEnumCache(EnumConstructionPlan<T> plan, T[] values, int fromIndex) {
+        Class<T> enumClass = plan.enumClazz();
+        if (ENUM_CONSTANT_DIRECTORY_OFFSET != -1L) {
+            @SuppressWarnings("unchecked")
+            Map<String, T> enumConstantDirectory = (Map<String, T>) UNSAFE.getObjectVolatile(enumClass, ENUM_CONSTANT_DIRECTORY_OFFSET);
+            Map<String, T> newEnumConstantDirectory = new HashMap<>((int) (values.length / 0.75F) + 1);
+            if (enumConstantDirectory != null) {
+                newEnumConstantDirectory.putAll(enumConstantDirectory);
+            } else {
+                fromIndex = 0;
+            }
+            for (int i = fromIndex; i < values.length; i++) {
+                newEnumConstantDirectory.put(values[i].name(), values[i]);
+            }
+            UNSAFE.putObjectVolatile(enumClass, ENUM_CONSTANT_DIRECTORY_OFFSET, newEnumConstantDirectory);
+        }
+        // like values() this must be a copy, the cached array is shared with all callers of Class::getEnumConstantsShared
+        if (ENUM_CONSTANTS_OFFSET != -1L) {
+            T[] enumConstants = values.clone();
+            plan.setInstalledEnumConstants(enumConstants);
+            UNSAFE.putObjectVolatile(enumClass, ENUM_CONSTANTS_OFFSET, enumConstants);
+        }
     }
 
     /**
@@ -320,13 +613,59 @@ public final class UnsafeExtensibleEnum {
 
     /**
      * goes through all switch statements in <code>switchUsers</code> and updates those
+     * also updates all switch statements found in the installed {@link SwitchMapIndex}
      *
      * @param enumClass                         the enum class used in the switch statements we want to adjust
      * @param switchUsers                       classes those switch statements are found in
      * @throws ReflectiveOperationException     switches array couldn't be updated
      */
     public static void updateRelatedSwitchStatements(Class<? extends Enum<?>> enumClass, Class<?>[] switchUsers) throws ReflectiveOperationException {
-        addSwitchCase(findRelatedSwitchFields(enumClass, switchUsers));
+        updateRelatedSwitchStatements(enumClass, -1, switchUsers);
+    }
+
+    /**
+     * goes through all switch statements in <code>switchUsers</code> and updates those
+     * also updates all switch statements found in the installed {@link SwitchMapIndex}
+     *
+     * @param enumClass                         the enum class used in the switch statements we want to adjust
+     * @param fallbackOrdinal                   ordinal of an existing constant whose switch cases new constants should share, <code>-1</code> for none, so they take the default branch,
+     *                                          only used for constants without a template set via {@link EnumAppender.Builder#template}
+     * @param switchUsers                       classes those switch statements are found in
+     * @throws ReflectiveOperationException     switches array couldn't be updated
+     */
+    public static void updateRelatedSwitchStatements(Class<? extends Enum<?>> enumClass, int fallbackOrdinal, Class<?>... switchUsers) throws ReflectiveOperationException {
+        updateSwitchFields(enumClass, findRelatedSwitchFields(enumClass, switchUsers), fallbackOrdinal);
+    }
+
+    /**
+     * updates switch statements from fields that have already been looked up, together with all switch statements found in the installed {@link SwitchMapIndex}
+     *
+     * @param enumClass                         the enum class used in the switch statements we want to adjust
+     * @param relatedSwitchFields               fields from {@link #findRelatedSwitchFields(Class, Class[])}
+     * @param fallbackOrdinal                   ordinal of an existing constant whose switch cases new constants should share, <code>-1</code> for none
+     * @throws ReflectiveOperationException     switches array couldn't be updated
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static void updateSwitchFields(Class<? extends Enum<?>> enumClass, Collection<Field> relatedSwitchFields, int fallbackOrdinal) throws ReflectiveOperationException {
+        Set<Field> switchFields = new LinkedHashSet<>(relatedSwitchFields);
+        SwitchMapIndex switchMapIndex = SwitchMapIndex.getInstance();
+        if (switchMapIndex != null) {
+            switchFields.addAll(switchMapIndex.findLoadedSwitchFields(enumClass));
+        }
+        EnumConstructionPlan<?> plan = EnumConstructionPlan.of((Class) enumClass);
+        // same lock as appendEnumConstants, so the switch arrays are never resized concurrently
+        synchronized (plan.lock()) {
+            addSwitchCase(switchFields, plan, enumClass.getEnumConstants(), fallbackOrdinal);
+        }
+        if (ExtensibleEnumMap.DEBUG_STALE_ENUM_MAPS) {
+            // classes switching over the enum are the ones most likely to also hold maps keyed by it
+            Set<Class<?>> suspects = new LinkedHashSet<>();
+            suspects.add(enumClass);
+            for (Field switchField : switchFields) {
+                suspects.add(switchField.getDeclaringClass());
+            }
+            ExtensibleEnumMap.reportStaleEnumMaps(enumClass, suspects);
+        }
     }
 
     /**
@@ -336,14 +675,15 @@ public final class UnsafeExtensibleEnum {
      * @param switchUsers       classes those switch statements are found in
      * @return                  fields containing the switch cases as an array
      */
-    private static Collection<Field> findRelatedSwitchFields(Class<? extends Enum<?>> enumClass, Class<?>[] switchUsers) {
+    static Collection<Field> findRelatedSwitchFields(Class<? extends Enum<?>> enumClass, Class<?>[] switchUsers) {
         Collection<Field> result = new ArrayList<>();
+        String switchMapName = "$SwitchMap$" + enumClass.getName().replace(".", "$");
         for (Class<?> switchUser : switchUsers) {
-            Class<?>[] clazzes = getAnonymousClasses(switchUser);
-            for (Class<?> suspect : clazzes) {
+            // javac places switch maps in a synthetic nested class, which is always a member of the same nest
+            for (Class<?> suspect : switchUser.getNestHost().getNestMembers()) {
                 Field[] fields = suspect.getDeclaredFields();
                 for (Field field : fields) {
-                    if (field.getName().startsWith("$SwitchMap$" + enumClass.getName().replace(".", "$"))) {
+                    if (field.getName().startsWith(switchMapName)) {
                         field.setAccessible(true);
                         result.add(field);
                     }
@@ -354,41 +694,48 @@ public final class UnsafeExtensibleEnum {
     }
 
     /**
-     * finds all anonymous classes in a class
+     * updates the values field for the switch statement with an index for every new value
+     * the arrays are grown to the current amount of enum values, so all constants from batched or concurrent additions are covered
      *
-     * @param clazz     class to scan
-     * @return          all anonymous classes in <code>clazz</code>
+     * @param switchFields                      the switch case arrays to modify
+     * @param plan                              the plan for the enum class, knows the template of every added constant
+     * @param enumConstants                     all enum values including all new ones
+     * @param fallbackOrdinal                   ordinal of the constant whose switch case is copied for new values without a template, <code>-1</code> to leave those on the default branch
+     * @throws ReflectiveOperationException     field couldn't be updated
      */
-    private static Class<?>[] getAnonymousClasses(Class<?> clazz) {
-        Collection<Class<?>> classes = new ArrayList<>();
-        for (int i = 1; ; i++) {
-            try {
-                classes.add(Class.forName(clazz.getName() + "$" + i, false, // do not initialize
-                        Thread.currentThread().getContextClassLoader()));
-            } catch (ClassNotFoundException e) {
-                break;
+    private static void addSwitchCase(final Collection<Field> switchFields, EnumConstructionPlan<?> plan, Enum<?>[] enumConstants, int fallbackOrdinal) throws ReflectiveOperationException {
+        for (Field switchField : switchFields) {
+            int[] switches = (int[]) switchField.get(null);
+            if (switches.length < enumConstants.length) {
+                int oldLength = switches.length;
+                switches = Arrays.copyOf(switches, enumConstants.length);
+                for (int i = oldLength; i < switches.length; i++) {
+                    Enum<?> template = plan.isAdded(enumConstants[i]) ? plan.getSwitchFallback(enumConstants[i]) : null;
+                    int ordinal = template != null ? template.ordinal() : fallbackOrdinal;
+                    if (ordinal >= 0 && ordinal < oldLength) {
+                        switches[i] = switches[ordinal];
+                    }
+                }
+                setStaticObjectField(switchField, switches);
             }
         }
-        for (Class<?> inner : clazz.getDeclaredClasses()) {
-            Collections.addAll(classes, getAnonymousClasses(inner));
-        }
-        for (Class<?> anon : new ArrayList<>(classes)) {
-            Collections.addAll(classes, getAnonymousClasses(anon));
-        }
-        return classes.toArray(new Class<?>[0]);
     }
 
     /**
-     * updates the values field for the switch statement with one more index for our new value
+     * creates a single enum constant during {@link #appendEnumConstants}
      *
-     * @param switchFields                      the switch case arrays to modify
-     * @throws ReflectiveOperationException     field couldn't be updated
+     * @param <T> enum type
      */
-    private static void addSwitchCase(final Collection<Field> switchFields) throws ReflectiveOperationException {
-        for (Field switchField : switchFields) {
-            int[] switches = (int[]) switchField.get(null);
-            switches = Arrays.copyOf(switches, switches.length + 1);
-            setStaticObjectField(switchField, switches);
-        }
+    @FunctionalInterface
+    public interface ConstantFactory<T extends Enum<T>> {
+
+        /**
+         * @param internalName name of the new enum value
+         * @param internalId ordinal id the new enum value is going to be added at
+         * @return the new enum constant, fully initialized
+         *
+         * @throws Throwable something went wrong during unsafe operations oh no
+         */
+        T create(String internalName, int internalId) throws Throwable;
     }
 }
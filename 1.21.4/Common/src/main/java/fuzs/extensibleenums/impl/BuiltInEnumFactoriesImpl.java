@@ -3,6 +3,11 @@ package fuzs.extensibleenums.impl;
 import com.google.common.collect.ImmutableList;
 import fuzs.extensibleenums.api.v2.BuiltInEnumFactories;
 import fuzs.extensibleenums.api.v2.core.EnumAppender;
+import fuzs.extensibleenums.api.v2.core.EnumExtensionSession;
+import fuzs.extensibleenums.api.v2.core.EnumRef;
+import fuzs.extensibleenums.api.v2.core.UnsafeExtensibleEnum;
+import fuzs.extensibleenums.impl.extension.EnumExtensionManifestWriter;
+import fuzs.extensibleenums.impl.extension.EnumExtensions;
 import net.minecraft.ChatFormatting;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.ByIdMap;
@@ -15,6 +20,9 @@ import net.minecraft.world.item.Rarity;
 
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public final class BuiltInEnumFactoriesImpl implements BuiltInEnumFactories {
@@ -22,40 +30,119 @@ public final class BuiltInEnumFactoriesImpl implements BuiltInEnumFactories {
     @Override
     public Rarity createRarity(ResourceLocation identifier, ChatFormatting color) {
         Objects.requireNonNull(color, "color is null");
-        String internalName = BuiltInEnumFactoriesImpl.toInternalName(identifier);
-        EnumAppender.create(Rarity.class, ChatFormatting.class).addEnumConstant(internalName, color).applyTo();
-        return BuiltInEnumFactoriesImpl.testEnumValueAddition(Rarity.class, internalName);
+        return create(Rarity.class, identifier, (String internalName) -> {
+            createRarityAppender(internalName, color).applyTo();
+        }, (Rarity rarity) -> {
+            recordRarity(identifier, rarity, color);
+        });
+    }
+
+    @Override
+    public EnumRef<Rarity> reserveRarity(ResourceLocation identifier, ChatFormatting color) {
+        Objects.requireNonNull(color, "color is null");
+        return reserve(Rarity.class, identifier, (String internalName) -> {
+            return createRarityAppender(internalName, color);
+        }, (Rarity rarity) -> {
+            recordRarity(identifier, rarity, color);
+        });
+    }
+
+    private static EnumAppender<Rarity> createRarityAppender(String internalName, ChatFormatting color) {
+        return EnumAppender.create(Rarity.class, ChatFormatting.class).addEnumConstant(internalName, color);
+    }
+
+    private static void recordRarity(ResourceLocation identifier, Rarity rarity, ChatFormatting color) {
+        EnumExtensionManifestWriter.record(identifier.getNamespace(), rarity,
+                new Class<?>[]{int.class, String.class, ChatFormatting.class}, rarity.ordinal(), identifier.toString(),
+                color
+        );
     }
 
     @Override
     public MobCategory createMobCategory(ResourceLocation identifier, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance) {
-        String internalName = BuiltInEnumFactoriesImpl.toInternalName(identifier);
-        EnumAppender.create(MobCategory.class, 0, String.class, 0, int.class, 0, boolean.class, 1, boolean.class, 1,
-                        int.class, 2, int.class
-                )
-                // noDespawnDistance has a default value of 32, but since we do not invoke a constructor the value will be missing and needs to be set manually
-                .addEnumConstant(internalName, name, maxInstancesPerChunk, isFriendly, isPersistent, 32,
-                        despawnDistance
-                ).applyTo();
-        return BuiltInEnumFactoriesImpl.testEnumValueAddition(MobCategory.class, internalName);
+        return create(MobCategory.class, identifier, (String internalName) -> {
+            createMobCategoryAppender(internalName, name, maxInstancesPerChunk, isFriendly, isPersistent, despawnDistance).applyTo();
+        }, (MobCategory mobCategory) -> {
+            recordMobCategory(identifier, mobCategory, name, maxInstancesPerChunk, isFriendly, isPersistent, despawnDistance);
+        });
+    }
+
+    @Override
+    public EnumRef<MobCategory> reserveMobCategory(ResourceLocation identifier, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance) {
+        return reserve(MobCategory.class, identifier, (String internalName) -> {
+            return createMobCategoryAppender(internalName, name, maxInstancesPerChunk, isFriendly, isPersistent, despawnDistance);
+        }, (MobCategory mobCategory) -> {
+            recordMobCategory(identifier, mobCategory, name, maxInstancesPerChunk, isFriendly, isPersistent, despawnDistance);
+        });
+    }
+
+    private static EnumAppender<MobCategory> createMobCategoryAppender(String internalName, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance) {
+        // invoke the actual constructor, so that noDespawnDistance receives its default value of 32
+        return EnumAppender.builder(MobCategory.class)
+                .constructor(String.class, int.class, boolean.class, boolean.class, int.class)
+                .build()
+                .buildEnumConstant(internalName)
+                .objectField(0, name)
+                .intField(1, maxInstancesPerChunk)
+                .booleanField(2, isFriendly)
+                .booleanField(3, isPersistent)
+                .intField(4, despawnDistance)
+                .add();
+    }
+
+    private static void recordMobCategory(ResourceLocation identifier, MobCategory mobCategory, String name, int maxInstancesPerChunk, boolean isFriendly, boolean isPersistent, int despawnDistance) {
+        EnumExtensionManifestWriter.record(identifier.getNamespace(), mobCategory,
+                new Class<?>[]{String.class, int.class, boolean.class, boolean.class, int.class}, name,
+                maxInstancesPerChunk, isFriendly, isPersistent, despawnDistance
+        );
     }
 
     @Override
     public Raid.RaiderType createRaiderType(ResourceLocation identifier, EntityType<? extends Raider> entityType, int[] spawnsPerWaveBeforeBonus) {
         Objects.requireNonNull(entityType, "entity type is null");
         Objects.requireNonNull(spawnsPerWaveBeforeBonus, "spawns per wave before bonus is null");
-        String internalName = BuiltInEnumFactoriesImpl.toInternalName(identifier);
+        // vanilla's static initializer already includes declared constants in VALUES
+        return create(Raid.RaiderType.class, identifier, (String internalName) -> {
+            // hold the same lock as the append, so a concurrent addition cannot be missing from the stored values
+            UnsafeExtensibleEnum.runLocked(Raid.RaiderType.class, () -> {
+                createRaiderTypeAppender(internalName, entityType, spawnsPerWaveBeforeBonus).applyTo();
+                // vanilla stores $VALUES, so we update it
+                Raid.RaiderType.VALUES = Raid.RaiderType.values();
+            });
+        }, (Raid.RaiderType raiderType) -> {
+            recordRaiderType(identifier, raiderType, entityType, spawnsPerWaveBeforeBonus);
+        });
+    }
+
+    @Override
+    public EnumRef<Raid.RaiderType> reserveRaiderType(ResourceLocation identifier, Supplier<? extends EntityType<? extends Raider>> entityType, int[] spawnsPerWaveBeforeBonus) {
+        Objects.requireNonNull(entityType, "entity type is null");
+        Objects.requireNonNull(spawnsPerWaveBeforeBonus, "spawns per wave before bonus is null");
+        return reserve(Raid.RaiderType.class, identifier, (String internalName) -> {
+            return createRaiderTypeAppender(internalName, Objects.requireNonNull(entityType.get(), "entity type is null"), spawnsPerWaveBeforeBonus);
+        }, (Raid.RaiderType raiderType) -> {
+            UnsafeExtensibleEnum.runLocked(Raid.RaiderType.class, () -> {
+                Raid.RaiderType.VALUES = Raid.RaiderType.values();
+            });
+            recordRaiderType(identifier, raiderType, entityType.get(), spawnsPerWaveBeforeBonus);
+        });
+    }
+
+    private static EnumAppender<Raid.RaiderType> createRaiderTypeAppender(String internalName, EntityType<? extends Raider> entityType, int[] spawnsPerWaveBeforeBonus) {
         ImmutableList.Builder<EnumAppender.FieldAccess> builder = ImmutableList.builder();
         builder.add(new EnumAppender.FieldAccess(0, EntityType.class));
         builder.add(new EnumAppender.FieldAccess(0, int[].class));
         builder.add(new EnumAppender.FieldAccess(0, Supplier.class, true));
-        new EnumAppender<>(Raid.RaiderType.class, builder.build()).addEnumConstant(internalName, entityType,
+        return new EnumAppender<>(Raid.RaiderType.class, builder.build()).addEnumConstant(internalName, entityType,
                 spawnsPerWaveBeforeBonus, (Supplier<EntityType<? extends Raider>>) () -> entityType
-        ).applyTo();
-        Raid.RaiderType result = BuiltInEnumFactoriesImpl.testEnumValueAddition(Raid.RaiderType.class, internalName);
-        // vanilla stores $VALUES, so we update it
-        Raid.RaiderType.VALUES = Raid.RaiderType.values();
-        return result;
+        );
+    }
+
+    private static void recordRaiderType(ResourceLocation identifier, Raid.RaiderType raiderType, EntityType<? extends Raider> entityType, int[] spawnsPerWaveBeforeBonus) {
+        // neither argument has a literal representation, they are left for the mod to fill in as field references
+        EnumExtensionManifestWriter.record(identifier.getNamespace(), raiderType,
+                new Class<?>[]{EntityType.class, int[].class}, entityType, spawnsPerWaveBeforeBonus
+        );
     }
 
     @Override
@@ -63,19 +150,92 @@ public final class BuiltInEnumFactoriesImpl implements BuiltInEnumFactories {
         testSpellColor(spellColorRed, "red");
         testSpellColor(spellColorGreen, "green");
         testSpellColor(spellColorBlue, "blue");
-        int id = SpellcasterIllager.IllagerSpell.values().length;
         double[] spellColor = {spellColorRed, spellColorGreen, spellColorBlue};
-        String internalName = toInternalName(identifier);
-        EnumAppender.create(SpellcasterIllager.IllagerSpell.class, int.class, double[].class).addEnumConstant(
-                internalName, id, spellColor).applyTo();
-        SpellcasterIllager.IllagerSpell result = testEnumValueAddition(SpellcasterIllager.IllagerSpell.class,
-                internalName
-        );
-        // vanilla uses this IntFunction to get enum values client-side for the particles, our new value is not included in the original values() field, so we need to reset this field
-        SpellcasterIllager.IllagerSpell.BY_ID = ByIdMap.continuous((SpellcasterIllager.IllagerSpell illagerSpell) -> {
-            return illagerSpell.id;
-        }, SpellcasterIllager.IllagerSpell.values(), ByIdMap.OutOfBoundsStrategy.ZERO);
-        return result;
+        // vanilla's static initializer already includes declared constants in BY_ID
+        return create(SpellcasterIllager.IllagerSpell.class, identifier, (String internalName) -> {
+            // hold the same lock as the append, so the id stays in sync with the ordinal when other mods add spells concurrently
+            UnsafeExtensibleEnum.runLocked(SpellcasterIllager.IllagerSpell.class, () -> {
+                int id = SpellcasterIllager.IllagerSpell.values().length;
+                EnumAppender.create(SpellcasterIllager.IllagerSpell.class, int.class, double[].class)
+                        .buildEnumConstant(internalName)
+                        .intField(0, id)
+                        .objectField(1, spellColor)
+                        .add()
+                        .applyTo();
+                // vanilla uses this IntFunction to get enum values client-side for the particles, our new value is not included in the original values() field, so we need to reset this field
+                SpellcasterIllager.IllagerSpell.BY_ID = ByIdMap.continuous((SpellcasterIllager.IllagerSpell illagerSpell) -> {
+                    return illagerSpell.id;
+                }, SpellcasterIllager.IllagerSpell.values(), ByIdMap.OutOfBoundsStrategy.ZERO);
+            });
+        }, (SpellcasterIllager.IllagerSpell illagerSpell) -> {
+            EnumExtensionManifestWriter.record(identifier.getNamespace(), illagerSpell,
+                    new Class<?>[]{int.class, double.class, double.class, double.class}, illagerSpell.id, spellColorRed,
+                    spellColorGreen, spellColorBlue
+            );
+        });
+    }
+
+    /**
+     * add a new enum constant right away, the internal name is released again when anything goes wrong before it has been registered
+     *
+     * @param enumClazz            the enum class
+     * @param identifier           identifier for the new enum constant
+     * @param enumConstantAppender adds the constant for the internal name to the enum class
+     * @param onAppended           called after the constant has been appended, not for constants declared ahead of time
+     * @param <T>                  type of enum
+     * @return the new enum constant
+     */
+    private static <T extends Enum<T>> T create(Class<T> enumClazz, ResourceLocation identifier, Consumer<String> enumConstantAppender, Consumer<T> onAppended) {
+        String internalName = ExtensibleEnumRegistryImpl.reserveInternalName(enumClazz, identifier);
+        try {
+            // constants declared in an enum extension manifest already exist since class initialization
+            if (EnumExtensions.isExtended(enumClazz, internalName)) {
+                return ExtensibleEnumRegistryImpl.register(enumClazz, identifier, internalName);
+            }
+            enumConstantAppender.accept(internalName);
+            T enumConstant = ExtensibleEnumRegistryImpl.register(enumClazz, identifier, internalName);
+            onAppended.accept(enumConstant);
+            return enumConstant;
+        } catch (RuntimeException | Error e) {
+            ExtensibleEnumRegistryImpl.releaseInternalName(enumClazz, identifier, internalName);
+            throw e;
+        }
+    }
+
+    /**
+     * reserve a new enum constant via {@link EnumExtensionSession#reserve}, the constant is registered once it exists
+     *
+     * @param enumClazz           the enum class
+     * @param identifier          identifier for the new enum constant
+     * @param enumAppenderFactory creates the appender for the internal name
+     * @param onAppended          called after the constant has been appended, not for constants declared ahead of time
+     * @param <T>                 type of enum
+     * @return lazy reference to the new enum constant
+     */
+    private static <T extends Enum<T>> EnumRef<T> reserve(Class<T> enumClazz, ResourceLocation identifier, Function<String, EnumAppender<T>> enumAppenderFactory, Consumer<T> onAppended) {
+        String internalName = ExtensibleEnumRegistryImpl.reserveInternalName(enumClazz, identifier);
+        AtomicBoolean appended = new AtomicBoolean();
+        try {
+            return EnumExtensionSession.reserve(enumClazz, internalName, () -> {
+                // the enum class is always initialized at this point, so constants declared in an enum extension manifest already exist
+                if (EnumExtensions.isExtended(enumClazz, internalName)) {
+                    return null;
+                } else {
+                    appended.set(true);
+                    return enumAppenderFactory.apply(internalName);
+                }
+            }, (T enumConstant) -> {
+                ExtensibleEnumRegistryImpl.register(enumClazz, identifier, internalName);
+                if (appended.get()) {
+                    onAppended.accept(enumConstant);
+                }
+            }, () -> {
+                ExtensibleEnumRegistryImpl.releaseInternalName(enumClazz, identifier, internalName);
+            });
+        } catch (RuntimeException | Error e) {
+            ExtensibleEnumRegistryImpl.releaseInternalName(enumClazz, identifier, internalName);
+            throw e;
+        }
     }
 
     private static void testSpellColor(double spellColor, String color) {
@@ -85,10 +245,12 @@ public final class BuiltInEnumFactoriesImpl implements BuiltInEnumFactories {
     }
 
     public static <T extends Enum<T>> T testEnumValueAddition(Class<T> enumClazz, String internalName) {
-        for (T enumConstant : enumClazz.getEnumConstants()) {
-            if (Objects.equals(enumConstant.name(), internalName)) return enumConstant;
+        // not via Enum::valueOf, that would fill the enum constant directory and have every later append warn about it
+        T enumConstant = UnsafeExtensibleEnum.findEnumConstant(enumClazz, internalName);
+        if (enumConstant == null) {
+            throw new IllegalStateException("Failed to add %s to %s".formatted(internalName, enumClazz));
         }
-        throw new IllegalStateException("Failed to add %s to %s".formatted(internalName, enumClazz));
+        return enumConstant;
     }
 
     public static String toInternalName(ResourceLocation resourceLocation) {
@@ -0,0 +1,137 @@
+package fuzs.extensibleenums.impl;
+
+import fuzs.extensibleenums.api.v2.ExtensibleEnumRegistry;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ExtensibleEnumRegistryImpl implements ExtensibleEnumRegistry {
+    private static final ClassValue<EnumIndex<?>> INDICES = new ClassValue<>() {
+
+        @Override
+        protected EnumIndex<?> computeValue(Class<?> type) {
+            return new EnumIndex<>();
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Enum<T>> EnumIndex<T> getIndex(Class<T> enumClazz) {
+        return (EnumIndex<T>) INDICES.get(enumClazz);
+    }
+
+    /**
+     * Reserve the internal name for a new enum constant before it is added to the enum class.
+     * <p>Different identifiers may map to the same internal name, so this fails fast naming both owners instead of
+     * letting the second addition fail somewhere in the middle.
+     *
+     * @param enumClazz  the enum class
+     * @param identifier identifier for the new enum constant
+     * @param <T>        type of enum
+     * @return the internal name for the new enum constant
+     */
+    public static <T extends Enum<T>> String reserveInternalName(Class<T> enumClazz, ResourceLocation identifier) {
+        String internalName = BuiltInEnumFactoriesImpl.toInternalName(identifier);
+        ResourceLocation reservedIdentifier = getIndex(enumClazz).identifiersByName.putIfAbsent(internalName,
+                identifier
+        );
+        if (reservedIdentifier != null) {
+            if (reservedIdentifier.equals(identifier)) {
+                throw new IllegalArgumentException("%s already exists in enum class %s".formatted(identifier,
+                        enumClazz.getName()
+                ));
+            } else {
+                throw new IllegalStateException(
+                        "%s from mod %s collides with %s from mod %s as %s in enum class %s".formatted(identifier,
+                                identifier.getNamespace(),
+                                reservedIdentifier,
+                                reservedIdentifier.getNamespace(),
+                                internalName,
+                                enumClazz.getName()
+                        ));
+            }
+        }
+        return internalName;
+    }
+
+    /**
+     * Release an internal name from {@link #reserveInternalName(Class, ResourceLocation)} again when adding the enum
+     * constant has failed, so the same identifier can be retried.
+     * <p>Names of enum constants that have already been registered are kept.
+     *
+     * @param enumClazz    the enum class
+     * @param identifier   identifier for the new enum constant
+     * @param internalName internal name from {@link #reserveInternalName(Class, ResourceLocation)}
+     * @param <T>          type of enum
+     */
+    public static <T extends Enum<T>> void releaseInternalName(Class<T> enumClazz, ResourceLocation identifier, String internalName) {
+        EnumIndex<T> index = getIndex(enumClazz);
+        synchronized (index) {
+            if (!index.byName.containsKey(internalName)) {
+                index.identifiersByName.remove(internalName, identifier);
+            }
+        }
+    }
+
+    /**
+     * Index a new enum constant after it has been added to the enum class.
+     *
+     * @param enumClazz    the enum class
+     * @param identifier   identifier for the new enum constant
+     * @param internalName internal name from {@link #reserveInternalName(Class, ResourceLocation)}
+     * @param <T>          type of enum
+     * @return the new enum constant
+     */
+    public static <T extends Enum<T>> T register(Class<T> enumClazz, ResourceLocation identifier, String internalName) {
+        T enumConstant = BuiltInEnumFactoriesImpl.testEnumValueAddition(enumClazz, internalName);
+        getIndex(enumClazz).register(enumConstant, identifier);
+        return enumConstant;
+    }
+
+    @Nullable
+    @Override
+    public <T extends Enum<T>> T getEnumConstant(Class<T> enumClazz, ResourceLocation identifier) {
+        Objects.requireNonNull(enumClazz, "enum class is null");
+        Objects.requireNonNull(identifier, "resource location is null");
+        return getIndex(enumClazz).byIdentifier.get(identifier);
+    }
+
+    @Nullable
+    @Override
+    public <T extends Enum<T>> T getEnumConstant(Class<T> enumClazz, String internalName) {
+        Objects.requireNonNull(enumClazz, "enum class is null");
+        Objects.requireNonNull(internalName, "internal name is null");
+        return getIndex(enumClazz).byName.get(internalName);
+    }
+
+    @Nullable
+    @Override
+    public ResourceLocation getIdentifier(Enum<?> enumConstant) {
+        Objects.requireNonNull(enumConstant, "enum constant is null");
+        ResourceLocation[] identifiers = INDICES.get(enumConstant.getDeclaringClass()).identifiersByOrdinal;
+        int ordinal = enumConstant.ordinal();
+        return ordinal < identifiers.length ? identifiers[ordinal] : null;
+    }
+
+    private static final class EnumIndex<T extends Enum<T>> {
+        final Map<String, ResourceLocation> identifiersByName = new ConcurrentHashMap<>();
+        final Map<String, T> byName = new ConcurrentHashMap<>();
+        final Map<ResourceLocation, T> byIdentifier = new ConcurrentHashMap<>();
+        volatile ResourceLocation[] identifiersByOrdinal = new ResourceLocation[0];
+
+        synchronized void register(T enumConstant, ResourceLocation identifier) {
+            this.byName.put(enumConstant.name(), enumConstant);
+            this.byIdentifier.put(identifier, enumConstant);
+            int ordinal = enumConstant.ordinal();
+            // copy on write, so lock-free readers never see a partially filled array
+            ResourceLocation[] identifiersByOrdinal = Arrays.copyOf(this.identifiersByOrdinal,
+                    Math.max(ordinal + 1, this.identifiersByOrdinal.length)
+            );
+            identifiersByOrdinal[ordinal] = identifier;
+            this.identifiersByOrdinal = identifiersByOrdinal;
+        }
+    }
+}
@@ -1,15 +1,57 @@
 package fuzs.extensibleenums.impl;
 
+import fuzs.extensibleenums.api.v2.core.EnumExtensionSession;
+import fuzs.extensibleenums.api.v2.core.SwitchMapIndex;
+import fuzs.extensibleenums.impl.extension.EnumExtensionManifestWriter;
 import net.minecraft.resources.ResourceLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 public class ExtensibleEnums {
     public static final String MOD_ID = "extensibleenums";
     public static final String MOD_NAME = "Extensible Enums";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_NAME);
+    /**
+     * opt-in via <code>-Dextensibleenums.backgroundPreparation=true</code>, prepares enum extensions on a background executor while mods are loading
+     */
+    public static final boolean BACKGROUND_PREPARATION = Boolean.getBoolean(MOD_ID + ".backgroundPreparation");
 
     public static ResourceLocation id(String path) {
         return ResourceLocation.fromNamespaceAndPath(MOD_ID, path);
     }
+
+    public static void installSwitchMapIndex(Collection<Path> paths, Path gameDirectory) {
+        long startTime = System.nanoTime();
+        try {
+            Path cacheFile = gameDirectory.resolve(".cache").resolve(MOD_ID).resolve("switch_map_index.txt");
+            SwitchMapIndex.install(SwitchMapIndex.build(paths, cacheFile));
+            LOGGER.debug("Indexed switch maps in {} mod files in {} ms", paths.size(), (System.nanoTime() - startTime) / 1_000_000L);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to index switch maps, only explicitly passed switch users will be updated", e);
+        }
+    }
+
+    public static void enableBackgroundPreparation() {
+        EnumExtensionSession.prepareInBackground(ForkJoinPool.commonPool());
+        LOGGER.info("Preparing enum extensions in the background");
+    }
+
+    public static void installSwitchMapIndexInBackground(Collection<Path> paths, Path gameDirectory) {
+        Executor executor = ForkJoinPool.commonPool();
+        // constants committed before the index is ready only update explicitly passed switch users, same as when the index is built late
+        EnumExtensionSession.addCommitBarrier(CompletableFuture.runAsync(() -> installSwitchMapIndex(paths, gameDirectory), executor));
+    }
+
+    public static void installEnumExtensionManifestWriter(Path gameDirectory) {
+        Path directory = gameDirectory.resolve(".cache").resolve(MOD_ID).resolve("enum_extensions");
+        EnumExtensionManifestWriter.install(directory);
+        LOGGER.info("Writing enum extension manifests for enum constants appended at runtime to {}", directory);
+    }
 }
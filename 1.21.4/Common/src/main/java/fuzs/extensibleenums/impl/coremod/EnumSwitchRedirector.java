@@ -0,0 +1,234 @@
+package fuzs.extensibleenums.impl.coremod;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * redirects invokedynamic switches to {@link fuzs.extensibleenums.api.v2.core.EnumSwitchBootstraps} while classes are being loaded,
+ * so switches compiled by javac 21+ handle enum constants added at runtime
+ * <p>this runs from a class transformer before any mod is loaded, so it must only depend on asm and the jdk,
+ * the bootstrap class is referenced by name only and is resolved when a redirected switch is first executed
+ */
+public final class EnumSwitchRedirector {
+    private static final String SWITCH_BOOTSTRAPS = "java/lang/runtime/SwitchBootstraps";
+    private static final String ENUM_SWITCH_BOOTSTRAPS = "fuzs/extensibleenums/api/v2/core/EnumSwitchBootstraps";
+    private static final Set<String> BOOTSTRAP_NAMES = Set.of("enumSwitch", "typeSwitch");
+    private static final byte[] SWITCH_BOOTSTRAPS_BYTES = SWITCH_BOOTSTRAPS.getBytes(StandardCharsets.UTF_8);
+    /**
+     * bump whenever the cache format or what is indexed changes
+     */
+    private static final String CACHE_HEADER = "switch-users-v1";
+
+    private EnumSwitchRedirector() {
+        // NO-OP
+    }
+
+    /**
+     * redirect all invokedynamic switches in a class to {@link fuzs.extensibleenums.api.v2.core.EnumSwitchBootstraps}
+     *
+     * @param classNode the class
+     * @return was any switch redirected
+     */
+    public static boolean transform(ClassNode classNode) {
+        boolean transformed = false;
+        for (MethodNode methodNode : classNode.methods) {
+            for (AbstractInsnNode insnNode : methodNode.instructions) {
+                if (insnNode instanceof InvokeDynamicInsnNode invokeDynamicInsnNode && isSwitchBootstrap(invokeDynamicInsnNode.bsm)) {
+                    Handle handle = invokeDynamicInsnNode.bsm;
+                    invokeDynamicInsnNode.bsm = new Handle(Opcodes.H_INVOKESTATIC, ENUM_SWITCH_BOOTSTRAPS, handle.getName(), handle.getDesc(), false);
+                    transformed = true;
+                }
+            }
+        }
+        return transformed;
+    }
+
+    private static boolean isSwitchBootstrap(Handle handle) {
+        return handle.getOwner().equals(SWITCH_BOOTSTRAPS) && BOOTSTRAP_NAMES.contains(handle.getName());
+    }
+
+    /**
+     * find all classes that may contain invokedynamic switches, so a class transformer only has to target those,
+     * jars are scanned in parallel
+     *
+     * @param paths     jar files and class directories to scan
+     * @param cacheFile file for caching results for unchanged jars across runs, can be <code>null</code> to disable caching
+     * @return binary names of all classes referencing {@link java.lang.runtime.SwitchBootstraps}
+     *
+     * @throws IOException reading a jar or directory failed
+     */
+    public static Set<String> findSwitchUsers(Collection<Path> paths, @Nullable Path cacheFile) throws IOException {
+        Map<JarKey, List<String>> cachedJars = cacheFile != null ? readCache(cacheFile) : Map.of();
+        Map<JarKey, List<String>> scannedJars = Collections.synchronizedMap(new HashMap<>());
+        Set<String> classNames;
+        try {
+            classNames = paths.parallelStream().distinct().flatMap((Path path) -> {
+                try {
+                    if (Files.isDirectory(path)) {
+                        return scanDirectory(path).stream();
+                    } else {
+                        JarKey jarKey = JarKey.of(path);
+                        List<String> jarClassNames = cachedJars.get(jarKey);
+                        if (jarClassNames == null) {
+                            jarClassNames = scanJar(path);
+                        }
+                        scannedJars.put(jarKey, jarClassNames);
+                        return jarClassNames.stream();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toSet());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (cacheFile != null && !scannedJars.equals(cachedJars)) {
+            writeCache(cacheFile, scannedJars);
+        }
+        return classNames;
+    }
+
+    private static List<String> scanJar(Path path) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (isClassFile(name)) {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        if (containsSwitchBootstraps(inputStream.readAllBytes())) {
+                            classNames.add(toClassName(name));
+                        }
+                    }
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private static List<String> scanDirectory(Path path) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String name = path.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                if (isClassFile(name) && containsSwitchBootstraps(Files.readAllBytes(file))) {
+                    classNames.add(toClassName(name));
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private static boolean isClassFile(String name) {
+        // multi-release entries are loaded under the name of the base entry, which is scanned anyway
+        return name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class");
+    }
+
+    private static String toClassName(String name) {
+        return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * cheap test for the owner name in the constant pool without parsing anything,
+     * may give false positives for classes only mentioning the name in a string constant, those are left untouched by {@link #transform(ClassNode)}
+     */
+    private static boolean containsSwitchBootstraps(byte[] classBytes) {
+        outer:
+        for (int i = 0, length = classBytes.length - SWITCH_BOOTSTRAPS_BYTES.length; i <= length; i++) {
+            for (int j = 0; j < SWITCH_BOOTSTRAPS_BYTES.length; j++) {
+                if (classBytes[i + j] != SWITCH_BOOTSTRAPS_BYTES[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static Map<JarKey, List<String>> readCache(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) return Map.of();
+        Map<JarKey, List<String>> cachedJars = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!CACHE_HEADER.equals(reader.readLine())) return Map.of();
+            List<String> classNames = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts[0].equals("J") && parts.length == 4) {
+                    classNames = new ArrayList<>();
+                    cachedJars.put(new JarKey(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3])), classNames);
+                } else if (parts[0].equals("C") && parts.length == 2 && classNames != null) {
+                    classNames.add(parts[1]);
+                } else {
+                    return Map.of();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // just scan everything again
+            return Map.of();
+        }
+        return cachedJars;
+    }
+
+    private static void writeCache(Path cacheFile, Map<JarKey, List<String>> scannedJars) throws IOException {
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporaryFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            writer.write(CACHE_HEADER);
+            writer.newLine();
+            for (Map.Entry<JarKey, List<String>> entry : scannedJars.entrySet()) {
+                JarKey jarKey = entry.getKey();
+                writer.write(String.join("\t", "J", jarKey.path(), Long.toString(jarKey.size()), Long.toString(jarKey.lastModified())));
+                writer.newLine();
+                for (String className : entry.getValue()) {
+                    writer.write(String.join("\t", "C", className));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * identifies a jar for the on-disk cache, a jar is scanned again when it is replaced or modified
+     *
+     * @param path         absolute jar path
+     * @param size         file size
+     * @param lastModified last modified time in milliseconds
+     */
+    private record JarKey(String path, long size, long lastModified) {
+
+        static JarKey of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new JarKey(path.toAbsolutePath().toString(), attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fuzs.extensibleenums.impl.extension;
+
+import com.google.gson.JsonElement;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+
+import java.util.List;
+
+/**
+ * a single enum constant declared in an enum extension manifest, added to the enum class when it is loaded
+ *
+ * @param modId               the mod declaring the constant
+ * @param enumName            internal name of the enum class
+ * @param name                name of the new enum constant
+ * @param constructor         descriptor of the enum constructor to invoke, without the implicit name and ordinal parameters
+ * @param parameters          constructor arguments, either literals or <code>{"class": ..., "field": ...}</code> references to static fields
+ * @param parameterMethod     reference to a static method <code>(int, Class)Object</code> providing all arguments instead of <code>parameters</code>
+ */
+public record EnumExtensionEntry(String modId, String enumName, String name, String constructor, List<JsonElement> parameters, @Nullable MemberReference parameterMethod) {
+
+    /**
+     * @return the constructor parameter types, without the implicit name and ordinal parameters
+     */
+    public Type[] parameterTypes() {
+        return Type.getArgumentTypes(this.constructor);
+    }
+
+    /**
+     * @return the descriptor of the actual enum constructor, including name and ordinal parameters
+     */
+    public String enumConstructor() {
+        return "(Ljava/lang/String;I" + this.constructor.substring(1);
+    }
+
+    /**
+     * a static field or method
+     *
+     * @param owner internal name of the declaring class
+     * @param name  the member name
+     */
+    public record MemberReference(String owner, String name) {
+
+    }
+}
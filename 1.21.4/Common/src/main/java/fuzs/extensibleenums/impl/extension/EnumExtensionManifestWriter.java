@@ -0,0 +1,174 @@
+package fuzs.extensibleenums.impl.extension;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * writes enum extension manifests for enum constants that had to be appended at runtime,
+ * mods can ship the resulting file to have the loader create those constants during class initialization instead
+ * <p>only active when a directory has been installed, which loaders do in development environments
+ * <p>entries are collected in memory, every changed manifest is written once on {@link #flush()} and on shutdown
+ * <p>the format follows NeoForge's <code>enumExtensions</code>, where <code>parameters</code> may only hold literals,
+ * arguments without a literal representation are written as <code>null</code> and the entry gets a <code>_comment</code> listing them,
+ * such entries need their whole parameter list replaced by hand with a reference to an <code>EnumProxy</code> field or a parameter method
+ */
+public final class EnumExtensionManifestWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnumExtensionManifestWriter.class);
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+    @Nullable
+    private static volatile Path directory;
+    /**
+     * recorded entries per mod id, keyed by enum class and constant name, guarded by itself
+     */
+    private static final Map<String, Map<String, JsonObject>> ENTRIES = new HashMap<>();
+    /**
+     * mod ids with entries recorded since their manifest has last been written, guarded by {@link #ENTRIES}
+     */
+    private static final Set<String> DIRTY_MOD_IDS = new HashSet<>();
+    /**
+     * held while flushing, so a manifest is never overwritten with an older snapshot by a concurrent flush
+     */
+    private static final Object FLUSH_LOCK = new Object();
+
+    private EnumExtensionManifestWriter() {
+        // NO-OP
+    }
+
+    /**
+     * start writing manifests
+     *
+     * @param directory the directory to write one manifest per mod to
+     */
+    public static void install(Path directory) {
+        if (EnumExtensionManifestWriter.directory == null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(EnumExtensionManifestWriter::flush, "Enum Extension Manifest Writer"));
+        }
+        EnumExtensionManifestWriter.directory = directory;
+    }
+
+    /**
+     * record an enum constant that has been appended at runtime
+     *
+     * @param modId           the mod adding the enum constant
+     * @param enumConstant    the new enum constant
+     * @param parameterTypes  parameter types of the enum constructor, without the implicit name and ordinal parameters
+     * @param arguments       arguments for the enum constructor
+     */
+    public static void record(String modId, Enum<?> enumConstant, Class<?>[] parameterTypes, Object... arguments) {
+        Path directory = EnumExtensionManifestWriter.directory;
+        if (directory == null) return;
+        Class<?> enumClazz = enumConstant.getDeclaringClass();
+        Class<?>[] constructorTypes = new Class<?>[parameterTypes.length + 2];
+        constructorTypes[0] = String.class;
+        constructorTypes[1] = int.class;
+        System.arraycopy(parameterTypes, 0, constructorTypes, 2, parameterTypes.length);
+        try {
+            enumClazz.getDeclaredConstructor(constructorTypes);
+        } catch (NoSuchMethodException e) {
+            LOGGER.debug("Skipping enum extension {} in enum class {}, no matching constructor", enumConstant.name(), enumClazz.getName());
+            return;
+        }
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("enum", Type.getInternalName(enumClazz));
+        jsonObject.addProperty("name", enumConstant.name());
+        jsonObject.addProperty("constructor", Type.getMethodDescriptor(Type.VOID_TYPE, toTypes(parameterTypes)));
+        JsonArray jsonArray = new JsonArray();
+        List<String> missingArguments = new ArrayList<>();
+        for (int i = 0; i < arguments.length; i++) {
+            JsonElement jsonElement = toJson(arguments[i]);
+            if (jsonElement.isJsonNull() && arguments[i] != null) {
+                missingArguments.add("%s (%s)".formatted(i, parameterTypes[i].getName()));
+            }
+            jsonArray.add(jsonElement);
+        }
+        jsonObject.add("parameters", jsonArray);
+        if (!missingArguments.isEmpty()) {
+            // the loader ignores unknown keys, so this is just a reminder for whoever ships the manifest
+            jsonObject.addProperty("_comment", "Parameters %s have no literal representation, replace \"parameters\" with a reference to an EnumProxy field or a parameter method".formatted(String.join(", ", missingArguments)));
+        }
+        synchronized (ENTRIES) {
+            Map<String, JsonObject> entries = ENTRIES.computeIfAbsent(modId, (String key) -> new LinkedHashMap<>());
+            entries.put(enumClazz.getName() + "#" + enumConstant.name(), jsonObject);
+            DIRTY_MOD_IDS.add(modId);
+        }
+    }
+
+    /**
+     * write manifests for all mods with entries recorded since the last flush
+     */
+    public static void flush() {
+        Path directory = EnumExtensionManifestWriter.directory;
+        if (directory == null) return;
+        synchronized (FLUSH_LOCK) {
+            Map<String, List<JsonObject>> manifests = new HashMap<>();
+            synchronized (ENTRIES) {
+                for (String modId : DIRTY_MOD_IDS) {
+                    manifests.put(modId, List.copyOf(ENTRIES.get(modId).values()));
+                }
+                DIRTY_MOD_IDS.clear();
+            }
+            // entries are never modified after being recorded, so recording can go on while they are serialized
+            manifests.forEach((String modId, List<JsonObject> entries) -> {
+                write(directory.resolve(modId + ".json"), entries);
+            });
+        }
+    }
+
+    private static Type[] toTypes(Class<?>[] classes) {
+        Type[] types = new Type[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            types[i] = Type.getType(classes[i]);
+        }
+        return types;
+    }
+
+    private static JsonElement toJson(@Nullable Object argument) {
+        if (argument instanceof Number number) {
+            return new JsonPrimitive(number);
+        } else if (argument instanceof Boolean bool) {
+            return new JsonPrimitive(bool);
+        } else if (argument instanceof Character character) {
+            return new JsonPrimitive(character);
+        } else if (argument instanceof String string) {
+            return new JsonPrimitive(string);
+        } else {
+            return JsonNull.INSTANCE;
+        }
+    }
+
+    private static void write(Path path, List<JsonObject> entries) {
+        JsonObject jsonObject = new JsonObject();
+        JsonArray jsonArray = new JsonArray();
+        entries.forEach(jsonArray::add);
+        jsonObject.add("entries", jsonArray);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(tmpPath, GSON.toJson(jsonObject));
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write enum extensions manifest {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package fuzs.extensibleenums.impl.extension;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.util.List;
+
+/**
+ * adds declared enum constants to an enum class while it is being loaded,
+ * new constants are constructed in the static initializer using the actual enum constructor and are included in <code>$VALUES</code> right away,
+ * so they are indistinguishable from constants declared in source
+ */
+public final class EnumExtensionTransformer {
+    private static final String ENUM_EXTENSIONS = Type.getInternalName(EnumExtensions.class);
+    private static final String GET_ARGUMENT_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/String;I)Ljava/lang/Object;";
+
+    private EnumExtensionTransformer() {
+        // NO-OP
+    }
+
+    /**
+     * add all declared constants to an enum class
+     *
+     * @param classNode the enum class
+     * @param entries   the constants to add
+     */
+    public static void transform(ClassNode classNode, List<EnumExtensionEntry> entries) {
+        if (entries.isEmpty()) return;
+        String valuesDescriptor = "[" + Type.getObjectType(classNode.name).getDescriptor();
+        FieldNode valuesField = null;
+        int ordinal = 0;
+        for (FieldNode fieldNode : classNode.fields) {
+            if ((fieldNode.access & Opcodes.ACC_ENUM) != 0) {
+                ordinal++;
+                for (EnumExtensionEntry entry : entries) {
+                    if (fieldNode.name.equals(entry.name())) {
+                        throw new IllegalStateException("%s from mod %s already exists in enum class %s".formatted(entry.name(), entry.modId(), classNode.name));
+                    }
+                }
+            } else if ((fieldNode.access & (Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC)) == (Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC) && fieldNode.desc.equals(valuesDescriptor)) {
+                // we don't go looking for $VALUES field by name as it might have been renamed
+                valuesField = fieldNode;
+            }
+        }
+        if (valuesField == null) throw new IllegalStateException("Could not find enum values field in enum class %s".formatted(classNode.name));
+        MethodNode clinit = findMethod(classNode, "<clinit>", "()V");
+        FieldInsnNode valuesInsn = findValuesInsn(classNode, clinit, valuesField);
+        InsnList insns = new InsnList();
+        // the values array is on the stack right before being stored, replace it with a larger copy containing our constants
+        insns.add(new LdcInsnNode(ordinal + entries.size()));
+        insns.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/util/Arrays", "copyOf", "([Ljava/lang/Object;I)[Ljava/lang/Object;", false));
+        insns.add(new TypeInsnNode(Opcodes.CHECKCAST, valuesDescriptor));
+        int maxStack = 0;
+        for (EnumExtensionEntry entry : entries) {
+            String constructor = entry.enumConstructor();
+            findMethod(classNode, "<init>", constructor);
+            insns.add(new InsnNode(Opcodes.DUP));
+            insns.add(new LdcInsnNode(ordinal));
+            insns.add(new TypeInsnNode(Opcodes.NEW, classNode.name));
+            insns.add(new InsnNode(Opcodes.DUP));
+            insns.add(new LdcInsnNode(entry.name()));
+            insns.add(new LdcInsnNode(ordinal));
+            Type[] parameterTypes = entry.parameterTypes();
+            int stack = 6;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                insns.add(new LdcInsnNode(classNode.name));
+                insns.add(new LdcInsnNode(entry.name()));
+                insns.add(new LdcInsnNode(i));
+                insns.add(new MethodInsnNode(Opcodes.INVOKESTATIC, ENUM_EXTENSIONS, "getArgument", GET_ARGUMENT_DESCRIPTOR, false));
+                addCast(insns, parameterTypes[i]);
+                maxStack = Math.max(maxStack, stack + 3);
+                stack += parameterTypes[i].getSize();
+            }
+            maxStack = Math.max(maxStack, stack);
+            insns.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, classNode.name, "<init>", constructor, false));
+            insns.add(new InsnNode(Opcodes.AASTORE));
+            ordinal++;
+        }
+        clinit.instructions.insertBefore(valuesInsn, insns);
+        // one more for the values array already on the stack
+        clinit.maxStack = Math.max(clinit.maxStack, maxStack + 1);
+    }
+
+    private static MethodNode findMethod(ClassNode classNode, String name, String descriptor) {
+        for (MethodNode methodNode : classNode.methods) {
+            if (methodNode.name.equals(name) && methodNode.desc.equals(descriptor)) {
+                return methodNode;
+            }
+        }
+        throw new IllegalStateException("No method %s%s found in enum class %s".formatted(name, descriptor, classNode.name));
+    }
+
+    private static FieldInsnNode findValuesInsn(ClassNode classNode, MethodNode clinit, FieldNode valuesField) {
+        for (AbstractInsnNode insn : clinit.instructions) {
+            if (insn instanceof FieldInsnNode fieldInsn && fieldInsn.getOpcode() == Opcodes.PUTSTATIC && fieldInsn.owner.equals(classNode.name) && fieldInsn.name.equals(valuesField.name)) {
+                return fieldInsn;
+            }
+        }
+        throw new IllegalStateException("Enum values field is never set in enum class %s".formatted(classNode.name));
+    }
+
+    private static void addCast(InsnList insns, Type type) {
+        String boxedName = switch (type.getSort()) {
+            case Type.BOOLEAN -> "java/lang/Boolean";
+            case Type.CHAR -> "java/lang/Character";
+            case Type.BYTE -> "java/lang/Byte";
+            case Type.SHORT -> "java/lang/Short";
+            case Type.INT -> "java/lang/Integer";
+            case Type.LONG -> "java/lang/Long";
+            case Type.FLOAT -> "java/lang/Float";
+            case Type.DOUBLE -> "java/lang/Double";
+            default -> null;
+        };
+        if (boxedName != null) {
+            insns.add(new TypeInsnNode(Opcodes.CHECKCAST, boxedName));
+            insns.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, boxedName, type.getClassName() + "Value", "()" + type.getDescriptor(), false));
+        } else {
+            insns.add(new TypeInsnNode(Opcodes.CHECKCAST, type.getInternalName()));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package fuzs.extensibleenums.impl.extension;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import fuzs.extensibleenums.api.v2.core.UnsafeExtensibleEnum;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * enum constants declared in enum extension manifests, which are added to enum classes when those are loaded instead of being appended via {@link sun.misc.Unsafe} later on
+ * <p>the manifest format matches NeoForge's enum extensions:
+ * <pre>{@code
+ * {
+ *   "entries": [
+ *     {
+ *       "enum": "net/minecraft/world/item/Rarity",
+ *       "name": "EXAMPLEMOD_MYTHIC",
+ *       "constructor": "(ILjava/lang/String;Ljava/util/function/UnaryOperator;)V",
+ *       "parameters": [4, "examplemod:mythic", {"class": "com/example/ExampleMod", "field": "MYTHIC_STYLE"}]
+ *     }
+ *   ]
+ * }
+ * }</pre>
+ * instead of an array, <code>parameters</code> may also reference a static method <code>(int, Class)Object</code> via <code>{"class": ..., "method": ...}</code>
+ */
+public final class EnumExtensions {
+    /**
+     * all declared entries by name per internal enum class name, in declaration order
+     */
+    private static final Map<String, Map<String, EnumExtensionEntry>> ENTRIES = new ConcurrentHashMap<>();
+
+    private EnumExtensions() {
+        // NO-OP
+    }
+
+    /**
+     * read all entries from a manifest
+     *
+     * @param modId           the mod providing the manifest
+     * @param reader          the manifest contents
+     * @param classNameMapper maps internal class names from the manifest to the runtime namespace
+     * @return all entries
+     */
+    public static List<EnumExtensionEntry> readManifest(String modId, Reader reader, UnaryOperator<String> classNameMapper) {
+        JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
+        List<EnumExtensionEntry> entries = new ArrayList<>();
+        for (JsonElement jsonElement : jsonObject.getAsJsonArray("entries")) {
+            JsonObject entry = jsonElement.getAsJsonObject();
+            String enumName = classNameMapper.apply(entry.get("enum").getAsString());
+            String constructor = mapDescriptor(entry.get("constructor").getAsString(), classNameMapper);
+            JsonElement parameters = entry.get("parameters");
+            EnumExtensionEntry.MemberReference parameterMethod = null;
+            List<JsonElement> parameterList = List.of();
+            if (parameters instanceof JsonObject parametersObject) {
+                parameterMethod = new EnumExtensionEntry.MemberReference(parametersObject.get("class").getAsString(), parametersObject.get("method").getAsString());
+            } else if (parameters instanceof JsonArray parametersArray) {
+                parameterList = parametersArray.asList();
+            }
+            EnumExtensionEntry enumExtensionEntry = new EnumExtensionEntry(modId, enumName, entry.get("name").getAsString(), constructor, parameterList, parameterMethod);
+            if (parameterMethod == null && parameterList.size() != enumExtensionEntry.parameterTypes().length) {
+                throw new IllegalArgumentException("Expected %s parameters for %s in enum class %s from mod %s, got %s".formatted(enumExtensionEntry.parameterTypes().length, enumExtensionEntry.name(), enumName, modId, parameterList.size()));
+            }
+            entries.add(enumExtensionEntry);
+        }
+        return entries;
+    }
+
+    private static String mapDescriptor(String descriptor, UnaryOperator<String> classNameMapper) {
+        Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+        for (int i = 0; i < argumentTypes.length; i++) {
+            argumentTypes[i] = mapType(argumentTypes[i], classNameMapper);
+        }
+        return Type.getMethodDescriptor(Type.VOID_TYPE, argumentTypes);
+    }
+
+    private static Type mapType(Type type, UnaryOperator<String> classNameMapper) {
+        if (type.getSort() == Type.OBJECT) {
+            return Type.getObjectType(classNameMapper.apply(type.getInternalName()));
+        } else if (type.getSort() == Type.ARRAY) {
+            return Type.getType("[".repeat(type.getDimensions()) + mapType(type.getElementType(), classNameMapper).getDescriptor());
+        } else {
+            return type;
+        }
+    }
+
+    /**
+     * make entries available for transforming enum classes, must happen before the enum classes are loaded
+     *
+     * @param entries the entries
+     */
+    public static void register(List<EnumExtensionEntry> entries) {
+        for (EnumExtensionEntry entry : entries) {
+            Map<String, EnumExtensionEntry> enumEntries = ENTRIES.computeIfAbsent(entry.enumName(), (String key) -> new LinkedHashMap<>());
+            synchronized (enumEntries) {
+                EnumExtensionEntry enumEntry = enumEntries.putIfAbsent(entry.name(), entry);
+                if (enumEntry != null) {
+                    throw new IllegalStateException("%s from mod %s collides with %s from mod %s in enum class %s".formatted(entry.name(), entry.modId(), enumEntry.name(), enumEntry.modId(), entry.enumName()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param enumName internal name of the enum class
+     * @return all entries declared for the enum class
+     */
+    public static List<EnumExtensionEntry> getEntries(String enumName) {
+        Map<String, EnumExtensionEntry> enumEntries = ENTRIES.get(enumName);
+        if (enumEntries == null) return List.of();
+        synchronized (enumEntries) {
+            return List.copyOf(enumEntries.values());
+        }
+    }
+
+    /**
+     * checks if an enum constant has been created during class initialization, either from a manifest handled here or by the loader itself,
+     * like NeoForge does for <code>enumExtensions</code> declared in <code>neoforge.mods.toml</code>
+     * <p>constants appended at runtime, e.g. by another mod using {@link fuzs.extensibleenums.api.v2.core.EnumAppender} directly, are not extended
+     *
+     * @param enumClazz    the enum class
+     * @param internalName name of an enum constant
+     * @return does the constant exist without having been appended
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static boolean isExtended(Class<? extends Enum<?>> enumClazz, String internalName) {
+        // this initializes the enum class, so manifest constants are created if they have not been already
+        Enum<?> enumConstant = UnsafeExtensibleEnum.findEnumConstant((Class) enumClazz, internalName);
+        if (enumConstant == null) {
+            // declared but not created, the enum class has not been transformed
+            return false;
+        } else {
+            return getEntry(Type.getInternalName(enumClazz), internalName) != null || !UnsafeExtensibleEnum.isAppended(enumConstant);
+        }
+    }
+
+    @Nullable
+    private static EnumExtensionEntry getEntry(String enumName, String name) {
+        Map<String, EnumExtensionEntry> enumEntries = ENTRIES.get(enumName);
+        if (enumEntries == null) return null;
+        synchronized (enumEntries) {
+            return enumEntries.get(name);
+        }
+    }
+
+    /**
+     * called from the static initializer of transformed enum classes for every constructor argument of a declared constant
+     *
+     * @param enumName internal name of the enum class
+     * @param name     name of the new enum constant
+     * @param index    index of the constructor argument
+     * @return the argument, boxed for primitive parameters
+     */
+    public static Object getArgument(String enumName, String name, int index) {
+        EnumExtensionEntry entry = getEntry(enumName, name);
+        if (entry == null) throw new IllegalStateException("No enum extension %s declared for enum class %s".formatted(name, enumName));
+        Type parameterType = entry.parameterTypes()[index];
+        try {
+            if (entry.parameterMethod() != null) {
+                Method method = loadClass(entry.parameterMethod().owner()).getDeclaredMethod(entry.parameterMethod().name(), int.class, Class.class);
+                method.setAccessible(true);
+                return method.invoke(null, index, loadClass(parameterType));
+            } else {
+                return getArgument(entry.parameters().get(index), parameterType);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Failed to get argument %s for %s in enum class %s from mod %s".formatted(index, name, enumName, entry.modId()), e);
+        }
+    }
+
+    @Nullable
+    private static Object getArgument(JsonElement jsonElement, Type parameterType) throws ReflectiveOperationException {
+        if (jsonElement instanceof JsonObject jsonObject) {
+            Field field = loadClass(jsonObject.get("class").getAsString()).getDeclaredField(jsonObject.get("field").getAsString());
+            field.setAccessible(true);
+            return field.get(null);
+        } else if (jsonElement.isJsonNull()) {
+            return null;
+        }
+        JsonPrimitive jsonPrimitive = jsonElement.getAsJsonPrimitive();
+        return switch (parameterType.getSort()) {
+            case Type.BOOLEAN -> jsonPrimitive.getAsBoolean();
+            case Type.CHAR -> jsonPrimitive.getAsString().charAt(0);
+            case Type.BYTE -> jsonPrimitive.getAsByte();
+            case Type.SHORT -> jsonPrimitive.getAsShort();
+            case Type.INT -> jsonPrimitive.getAsInt();
+            case Type.LONG -> jsonPrimitive.getAsLong();
+            case Type.FLOAT -> jsonPrimitive.getAsFloat();
+            case Type.DOUBLE -> jsonPrimitive.getAsDouble();
+            default -> jsonPrimitive.getAsString();
+        };
+    }
+
+    private static Class<?> loadClass(Type type) throws ClassNotFoundException {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN -> boolean.class;
+            case Type.CHAR -> char.class;
+            case Type.BYTE -> byte.class;
+            case Type.SHORT -> short.class;
+            case Type.INT -> int.class;
+            case Type.LONG -> long.class;
+            case Type.FLOAT -> float.class;
+            case Type.DOUBLE -> double.class;
+            case Type.ARRAY -> Class.forName(type.getDescriptor().replace('/', '.'), false, EnumExtensions.class.getClassLoader());
+            default -> loadClass(type.getInternalName());
+        };
+    }
+
+    private static Class<?> loadClass(String internalName) throws ClassNotFoundException {
+        return Class.forName(internalName.replace('/', '.'), true, EnumExtensions.class.getClassLoader());
+    }
+}
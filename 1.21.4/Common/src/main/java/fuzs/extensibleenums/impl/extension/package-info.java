@@ -0,0 +1,4 @@
+@ApiStatus.Internal
+package fuzs.extensibleenums.impl.extension;
+
+import org.jetbrains.annotations.ApiStatus;
\ No newline at end of file
@@ -0,0 +1,249 @@
+package fuzs.extensibleenums.impl.processor;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * generates factory methods for enum constants declared via {@link fuzs.extensibleenums.api.v2.ExtendEnum}
+ * <p>all validation happens here, so the generated code neither has to match argument types against enum fields, nor can it fail doing so:
+ * enum field offsets are looked up once when the generated class is initialized, and factory method parameters are typed after the fields they are written to
+ */
+@SupportedAnnotationTypes(ExtendEnumProcessor.EXTEND_ENUM)
+public final class ExtendEnumProcessor extends AbstractProcessor {
+    static final String EXTEND_ENUM = "fuzs.extensibleenums.api.v2.ExtendEnum";
+    private static final String CLASS_SUFFIX = "EnumExtensions";
+    private static final String UNSAFE_EXTENSIBLE_ENUM = "fuzs.extensibleenums.api.v2.core.UnsafeExtensibleEnum";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<EnumConstant>> constantsByOwner = new LinkedHashMap<>();
+        Set<String> constantNames = new HashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                EnumConstant enumConstant = this.readEnumConstant((VariableElement) element);
+                if (enumConstant == null) continue;
+                if (!constantNames.add(enumConstant.enumType().getQualifiedName() + "#" + enumConstant.name())) {
+                    this.error(element, "Enum constant %s is already declared for enum class %s", enumConstant.name(), enumConstant.enumType().getQualifiedName());
+                    continue;
+                }
+                constantsByOwner.computeIfAbsent((TypeElement) element.getEnclosingElement(), (TypeElement key) -> new ArrayList<>()).add(enumConstant);
+            }
+        }
+        constantsByOwner.forEach(this::writeSourceFile);
+        return true;
+    }
+
+    /**
+     * validate an annotated field
+     *
+     * @return the enum constant declared by the field, <code>null</code> if an error has been reported
+     */
+    @Nullable
+    private EnumConstant readEnumConstant(VariableElement element) {
+        Types types = this.processingEnv.getTypeUtils();
+        if (!element.getModifiers().containsAll(Set.of(Modifier.STATIC, Modifier.FINAL))) {
+            this.error(element, "Field must be static and final");
+            return null;
+        }
+        AnnotationMirror annotationMirror = this.getAnnotationMirror(element);
+        TypeElement enumType = null;
+        List<String> fieldNames = new ArrayList<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotationMirror.getElementValues().entrySet()) {
+            String name = entry.getKey().getSimpleName().toString();
+            if (name.equals("value")) {
+                enumType = (TypeElement) ((DeclaredType) entry.getValue().getValue()).asElement();
+            } else if (name.equals("fields")) {
+                for (Object value : (List<?>) entry.getValue().getValue()) {
+                    fieldNames.add((String) ((AnnotationValue) value).getValue());
+                }
+            }
+        }
+        if (enumType == null || enumType.getKind() != ElementKind.ENUM) {
+            this.error(element, "Annotation value must be an enum class");
+            return null;
+        }
+        if (enumType.getModifiers().contains(Modifier.ABSTRACT)) {
+            // constants of enum classes with abstract methods need a concrete class, use EnumAppender instead
+            this.error(element, "Enum class %s is abstract", enumType.getQualifiedName());
+            return null;
+        }
+        if (!types.isSameType(types.erasure(element.asType()), types.erasure(enumType.asType()))) {
+            this.error(element, "Field type %s does not match enum class %s", element.asType(), enumType.getQualifiedName());
+            return null;
+        }
+        List<VariableElement> declaredFields = ElementFilter.fieldsIn(enumType.getEnclosedElements());
+        List<EnumField> enumFields = new ArrayList<>();
+        if (fieldNames.isEmpty()) {
+            for (VariableElement declaredField : declaredFields) {
+                if (!declaredField.getModifiers().contains(Modifier.STATIC)) {
+                    enumFields.add(this.getEnumField(declaredField, declaredFields));
+                }
+            }
+        } else {
+            Set<String> seenFieldNames = new HashSet<>();
+            for (String fieldName : fieldNames) {
+                VariableElement declaredField = declaredFields.stream().filter((VariableElement variableElement) -> {
+                    return variableElement.getSimpleName().contentEquals(fieldName);
+                }).findAny().orElse(null);
+                if (declaredField == null || declaredField.getModifiers().contains(Modifier.STATIC)) {
+                    this.error(element, "No instance field %s in enum class %s", fieldName, enumType.getQualifiedName());
+                    return null;
+                } else if (!seenFieldNames.add(fieldName)) {
+                    this.error(element, "Instance field %s is set more than once", fieldName);
+                    return null;
+                }
+                enumFields.add(this.getEnumField(declaredField, declaredFields));
+            }
+        }
+        return new EnumConstant(element.getSimpleName().toString(), enumType, enumFields);
+    }
+
+    private AnnotationMirror getAnnotationMirror(Element element) {
+        for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotationMirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(EXTEND_ENUM)) {
+                return annotationMirror;
+            }
+        }
+        throw new IllegalStateException("Missing annotation " + EXTEND_ENUM);
+    }
+
+    /**
+     * find the position of a field among all fields of the same type, which is how the field is looked up at runtime
+     */
+    private EnumField getEnumField(VariableElement field, List<VariableElement> declaredFields) {
+        Types types = this.processingEnv.getTypeUtils();
+        TypeMirror erasure = types.erasure(field.asType());
+        int ordinal = 0;
+        for (VariableElement declaredField : declaredFields) {
+            if (declaredField.equals(field)) break;
+            if (types.isSameType(erasure, types.erasure(declaredField.asType()))) ordinal++;
+        }
+        return new EnumField(field.getSimpleName().toString(), field.asType(), erasure, ordinal);
+    }
+
+    private void writeSourceFile(TypeElement owner, List<EnumConstant> enumConstants) {
+        PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(owner);
+        String packageName = packageElement.getQualifiedName().toString();
+        String ownerName = owner.getQualifiedName().toString();
+        String simpleName = (packageName.isEmpty() ? ownerName : ownerName.substring(packageName.length() + 1)).replace('.', '_') + CLASS_SUFFIX;
+        // the same enum field offset is only looked up once for all constants in this class
+        Map<String, String> offsetLookups = new LinkedHashMap<>();
+        StringBuilder methods = new StringBuilder();
+        for (EnumConstant enumConstant : enumConstants) {
+            String enumName = enumConstant.enumType().getQualifiedName().toString();
+            List<String> offsetConstants = new ArrayList<>();
+            for (EnumField enumField : enumConstant.fields()) {
+                String lookup = "%s.findFieldOffset(%s.class, %s.class, %s)".formatted(UNSAFE_EXTENSIBLE_ENUM, enumName, enumField.erasure(), enumField.ordinal());
+                offsetConstants.add(offsetLookups.computeIfAbsent(lookup, (String key) -> "OFFSET_" + offsetLookups.size()));
+            }
+            this.writeFactoryMethod(methods, enumConstant, enumName, offsetConstants);
+        }
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        builder.append("@javax.annotation.processing.Generated(\"").append(ExtendEnumProcessor.class.getName()).append("\")\n");
+        builder.append("public final class ").append(simpleName).append(" {\n");
+        offsetLookups.forEach((String lookup, String offsetConstant) -> {
+            builder.append("    private static final long ").append(offsetConstant).append(" = ").append(lookup).append(";\n");
+        });
+        builder.append("\n    private ").append(simpleName).append("() {\n        // NO-OP\n    }\n");
+        builder.append(methods);
+        builder.append("}\n");
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, owner).openWriter()) {
+            writer.write(builder.toString());
+        } catch (IOException e) {
+            this.error(owner, "Failed to write %s: %s", simpleName, e);
+        }
+    }
+
+    private void writeFactoryMethod(StringBuilder builder, EnumConstant enumConstant, String enumName, List<String> offsetConstants) {
+        List<EnumField> enumFields = enumConstant.fields();
+        builder.append("\n    public static ").append(enumName).append(" ").append(enumConstant.name()).append("(");
+        for (int i = 0; i < enumFields.size(); i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(enumFields.get(i).type()).append(" ").append(enumFields.get(i).name());
+        }
+        builder.append(") {\n");
+        // local names use $ so they cannot clash with parameters named after enum fields
+        builder.append("        try {\n");
+        builder.append("            ").append(enumName).append(" $enumConstant = ").append(UNSAFE_EXTENSIBLE_ENUM).append(".appendEnumConstants(").append(enumName).append(".class, java.util.List.of(\"").append(enumConstant.name()).append("\"), (String $internalName, int $internalId) -> {\n");
+        builder.append("                ").append(enumName).append(" $newConstant = ").append(UNSAFE_EXTENSIBLE_ENUM).append(".invokeEnumConstructor(").append(enumName).append(".class, $internalName, $internalId);\n");
+        for (int i = 0; i < enumFields.size(); i++) {
+            EnumField enumField = enumFields.get(i);
+            builder.append("                ").append(UNSAFE_EXTENSIBLE_ENUM).append(".").append(getSetterName(enumField.erasure())).append("($newConstant, ").append(offsetConstants.get(i)).append(", ").append(enumField.name()).append(");\n");
+        }
+        builder.append("                return $newConstant;\n");
+        builder.append("            }).get(0);\n");
+        builder.append("            ").append(UNSAFE_EXTENSIBLE_ENUM).append(".updateRelatedSwitchStatements(").append(enumName).append(".class, -1);\n");
+        builder.append("            return $enumConstant;\n");
+        builder.append("        } catch (Throwable $throwable) {\n");
+        builder.append("            throw new IllegalStateException(\"Failed to add ").append(enumConstant.name()).append(" to \" + ").append(enumName).append(".class, $throwable);\n");
+        builder.append("        }\n");
+        builder.append("    }\n");
+    }
+
+    private static String getSetterName(TypeMirror typeMirror) {
+        if (typeMirror.getKind().isPrimitive()) {
+            String typeName = typeMirror.getKind().name().toLowerCase(Locale.ROOT);
+            return "set" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1) + "Field";
+        } else {
+            return "setObjectField";
+        }
+    }
+
+    private void error(Element element, String message, Object... args) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message.formatted(args), element);
+    }
+
+    /**
+     * @param name     name of the new enum constant
+     * @param enumType the enum class
+     * @param fields   enum fields to set, in factory method parameter order
+     */
+    private record EnumConstant(String name, TypeElement enumType, List<EnumField> fields) {
+
+    }
+
+    /**
+     * @param name    the field name, only used for the factory method parameter
+     * @param type    the field type
+     * @param erasure the erased field type, as seen at runtime
+     * @param ordinal position among all declared fields with the same erased type
+     */
+    private record EnumField(String name, TypeMirror type, TypeMirror erasure, int ordinal) {
+
+    }
+}
@@ -0,0 +1,4 @@
+@ApiStatus.Internal
+package fuzs.extensibleenums.impl.processor;
+
+import org.jetbrains.annotations.ApiStatus;
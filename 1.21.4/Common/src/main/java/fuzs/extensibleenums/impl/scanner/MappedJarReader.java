@@ -0,0 +1,170 @@
+package fuzs.extensibleenums.impl.scanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * reads all class files from a jar by memory-mapping it and walking the zip central directory directly,
+ * which avoids the per-entry overhead of {@link ZipFile} when every class in a jar is going to be read anyway
+ * <p>jars the reader does not understand (zip64, encryption, unusual compression) or with offsets and sizes pointing outside the file are read via {@link ZipFile} instead
+ */
+public final class MappedJarReader {
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054B50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014B50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034B50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private MappedJarReader() {
+        // NO-OP
+    }
+
+    /**
+     * read all class files from a jar
+     *
+     * @param path     the jar file
+     * @param consumer receives the entry name and class file for every <code>.class</code> entry
+     * @throws IOException the jar could not be read
+     */
+    public static void forEachClass(Path path, ClassConsumer consumer) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (fileChannel.size() < END_OF_CENTRAL_DIRECTORY_SIZE || fileChannel.size() > Integer.MAX_VALUE) {
+                readWithZipFile(path, consumer);
+                return;
+            }
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (!readMapped(buffer, consumer)) {
+                readWithZipFile(path, consumer);
+            }
+        }
+    }
+
+    /**
+     * @return <code>false</code> when the jar uses any features not supported here, nothing has been passed to <code>consumer</code> then
+     */
+    private static boolean readMapped(ByteBuffer buffer, ClassConsumer consumer) throws IOException {
+        int endOfCentralDirectory = findEndOfCentralDirectory(buffer);
+        if (endOfCentralDirectory == -1) return false;
+        int entries = Short.toUnsignedInt(buffer.getShort(endOfCentralDirectory + 10));
+        long centralDirectoryOffset = Integer.toUnsignedLong(buffer.getInt(endOfCentralDirectory + 16));
+        // zip64 marker
+        if (entries == 0xFFFF || centralDirectoryOffset == 0xFFFFFFFFL || centralDirectoryOffset >= buffer.limit()) return false;
+        // validate all entries first, so we never have to bail out half way through
+        long position = centralDirectoryOffset;
+        for (int i = 0; i < entries; i++) {
+            if (position + 46 > buffer.limit() || buffer.getInt((int) position) != CENTRAL_DIRECTORY_SIGNATURE) return false;
+            int flags = Short.toUnsignedInt(buffer.getShort((int) position + 8));
+            int method = Short.toUnsignedInt(buffer.getShort((int) position + 10));
+            // encrypted or neither stored nor deflated
+            if ((flags & 1) != 0 || method != ZipEntry.STORED && method != ZipEntry.DEFLATED) return false;
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt((int) position + 20));
+            long size = Integer.toUnsignedLong(buffer.getInt((int) position + 24));
+            long localHeaderOffset = Integer.toUnsignedLong(buffer.getInt((int) position + 42));
+            // zip64 markers, or too large for a byte array anyway
+            if (compressedSize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE || localHeaderOffset == 0xFFFFFFFFL) return false;
+            if (method == ZipEntry.STORED && compressedSize != size) return false;
+            // the local header may use different name and extra field lengths than the central directory, so the data offset is taken from there
+            if (localHeaderOffset + 30 > buffer.limit() || buffer.getInt((int) localHeaderOffset) != LOCAL_FILE_HEADER_SIGNATURE) return false;
+            long dataOffset = localHeaderOffset + 30 + Short.toUnsignedInt(buffer.getShort((int) localHeaderOffset + 26)) + Short.toUnsignedInt(buffer.getShort((int) localHeaderOffset + 28));
+            if (dataOffset + compressedSize > buffer.limit()) return false;
+            position += 46 + Short.toUnsignedInt(buffer.getShort((int) position + 28)) + Short.toUnsignedInt(buffer.getShort((int) position + 30)) + Short.toUnsignedInt(buffer.getShort((int) position + 32));
+            if (position > buffer.limit()) return false;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            int offset = (int) centralDirectoryOffset;
+            for (int i = 0; i < entries; i++) {
+                int method = Short.toUnsignedInt(buffer.getShort(offset + 10));
+                int compressedSize = buffer.getInt(offset + 20);
+                int size = buffer.getInt(offset + 24);
+                int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 28));
+                int localHeaderOffset = buffer.getInt(offset + 42);
+                String name = readString(buffer, offset + 46, nameLength);
+                offset += 46 + nameLength + Short.toUnsignedInt(buffer.getShort(offset + 30)) + Short.toUnsignedInt(buffer.getShort(offset + 32));
+                if (!name.endsWith(".class")) continue;
+                int dataOffset = localHeaderOffset + 30 + Short.toUnsignedInt(buffer.getShort(localHeaderOffset + 26)) + Short.toUnsignedInt(buffer.getShort(localHeaderOffset + 28));
+                ByteBuffer data = buffer.slice(dataOffset, compressedSize);
+                byte[] classBytes = new byte[size];
+                if (method == ZipEntry.STORED) {
+                    data.get(classBytes);
+                } else {
+                    inflater.reset();
+                    inflater.setInput(data);
+                    try {
+                        int length = 0;
+                        while (length < size && !inflater.finished()) {
+                            int inflated = inflater.inflate(classBytes, length, size - length);
+                            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                            length += inflated;
+                        }
+                        if (length != size) throw new IOException("Truncated entry " + name);
+                    } catch (DataFormatException e) {
+                        throw new IOException("Invalid entry " + name, e);
+                    }
+                }
+                consumer.accept(name, classBytes);
+            }
+        } finally {
+            inflater.end();
+        }
+        return true;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        int minPosition = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+        for (int position = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= minPosition; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static String readString(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readWithZipFile(Path path, ClassConsumer consumer) throws IOException {
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class")) {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        consumer.accept(entry.getName(), inputStream.readAllBytes());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * receives class files read from a jar
+     */
+    @FunctionalInterface
+    public interface ClassConsumer {
+
+        /**
+         * @param name       the entry name
+         * @param classBytes the class file
+         * @throws UncheckedIOException to abort reading
+         */
+        void accept(String name, byte[] classBytes);
+    }
+}
@@ -0,0 +1,414 @@
+package fuzs.extensibleenums.impl.scanner;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * standalone tool for finding all switches over enums that are extended in a mods folder, as those may misbehave for added constants
+ * <p>run with only this mod's jar and ASM on the classpath, Minecraft is not required:
+ * <code>java -cp extensibleenums.jar:asm.jar fuzs.extensibleenums.impl.scanner.SwitchHazardScanner &lt;mods directory&gt; [report file] [--enum &lt;internal name&gt;]...</code>
+ * <p>extended enums are all enums with a factory in {@link fuzs.extensibleenums.api.v2.BuiltInEnumFactories} (when this mod is in the folder),
+ * enums passed to {@link fuzs.extensibleenums.api.v2.core.EnumAppender} or {@link fuzs.extensibleenums.api.v2.core.UnsafeExtensibleEnum} by any mod,
+ * and enums passed via <code>--enum</code>, nested jars are not scanned
+ * <p>the report is written as json, switches with <code>exhaustive</code> set throw for constants they do not know about
+ */
+public final class SwitchHazardScanner {
+    private static final String BUILT_IN_ENUM_FACTORIES = "fuzs/extensibleenums/api/v2/BuiltInEnumFactories";
+    private static final String ENUM_REF = "fuzs/extensibleenums/api/v2/core/EnumRef";
+    private static final Set<String> ENUM_APPENDERS = Set.of("fuzs/extensibleenums/api/v2/core/EnumAppender", "fuzs/extensibleenums/api/v2/core/UnsafeExtensibleEnum");
+    private static final String SWITCH_BOOTSTRAPS = "java/lang/runtime/SwitchBootstraps";
+    private static final Set<String> SWITCH_EXCEPTIONS = Set.of("java/lang/MatchException", "java/lang/IncompatibleClassChangeError");
+
+    private SwitchHazardScanner() {
+        // NO-OP
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SwitchHazardScanner <mods directory> [report file] [--enum <internal name>]...");
+            System.exit(2);
+        }
+        Path directory = Path.of(args[0]);
+        Path reportFile = Path.of("switch_hazards.json");
+        Set<String> extraTargets = new HashSet<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--enum") && i + 1 < args.length) {
+                extraTargets.add(args[++i].replace('.', '/'));
+            } else {
+                reportFile = Path.of(args[i]);
+            }
+        }
+        long startTime = System.nanoTime();
+        Report report = scan(directory, extraTargets);
+        report.write(reportFile);
+        System.out.printf("Scanned %s jars in %s ms, found %s switches over %s extended enums, report written to %s%n", report.jars(), (System.nanoTime() - startTime) / 1_000_000L, report.hazards().size(), report.targets().size(), reportFile.toAbsolutePath());
+        for (Failure failure : report.failures()) {
+            System.err.printf("Failed to scan %s: %s%n", failure.jar(), failure.message());
+        }
+    }
+
+    /**
+     * scan all jars in a directory in parallel, jars that cannot be read are recorded as failures in the report and do not stop the scan
+     *
+     * @param directory    the directory, usually the mods folder
+     * @param extraTargets internal names of additional enums to treat as extended
+     * @return the report
+     *
+     * @throws IOException the directory could not be listed
+     */
+    public static Report scan(Path directory, Set<String> extraTargets) throws IOException {
+        List<Path> jars;
+        try (Stream<Path> stream = Files.list(directory)) {
+            jars = stream.filter(path -> path.toString().endsWith(".jar") && Files.isRegularFile(path)).sorted().toList();
+        }
+        List<JarResult> jarResults = jars.parallelStream().map(SwitchHazardScanner::scanJar).toList();
+        Set<String> targets = new TreeSet<>(extraTargets);
+        Map<SwitchMapField, String> switchMapFields = new HashMap<>();
+        List<Failure> failures = new ArrayList<>();
+        for (JarResult jarResult : jarResults) {
+            if (jarResult.failure() != null) {
+                failures.add(new Failure(jarResult.jar().getFileName().toString(), jarResult.failure()));
+                continue;
+            }
+            targets.addAll(jarResult.targets());
+            for (SwitchMapField switchMapField : jarResult.switchMapFields()) {
+                switchMapFields.put(new SwitchMapField(switchMapField.owner(), switchMapField.name()), switchMapField.enumName());
+            }
+        }
+        List<Hazard> hazards = new ArrayList<>();
+        for (JarResult jarResult : jarResults) {
+            if (jarResult.failure() != null) continue;
+            for (SwitchUse switchUse : jarResult.switchUses()) {
+                String enumName = switchUse.enumName() != null ? switchUse.enumName() : switchMapFields.get(switchUse.switchMapField());
+                if (enumName != null && targets.contains(enumName)) {
+                    hazards.add(new Hazard(jarResult.jar().getFileName().toString(), switchUse.owner(), switchUse.method(), enumName, switchUse.kind(), switchUse.exhaustive()));
+                }
+            }
+        }
+        hazards.sort(Comparator.comparing(Hazard::jar).thenComparing(Hazard::owner).thenComparing(Hazard::method));
+        return new Report(jars.size(), targets, hazards, failures);
+    }
+
+    private static JarResult scanJar(Path jar) {
+        JarResult jarResult = new JarResult(jar, new HashSet<>(), new ArrayList<>(), new ArrayList<>(), null);
+        try {
+            MappedJarReader.forEachClass(jar, (String name, byte[] classBytes) -> {
+                ClassReader classReader;
+                try {
+                    classReader = new ClassReader(classBytes);
+                } catch (RuntimeException e) {
+                    return;
+                }
+                classReader.accept(new ScanningClassVisitor(jarResult), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            });
+        } catch (IOException | RuntimeException e) {
+            // results from a partially read jar are incomplete, so only the failure is kept
+            return new JarResult(jar, Set.of(), List.of(), List.of(), e.toString());
+        }
+        return jarResult;
+    }
+
+    /**
+     * find the enum class created by a method from {@link fuzs.extensibleenums.api.v2.BuiltInEnumFactories},
+     * for lazy references the enum class is taken from the type argument in the generic signature
+     *
+     * @param descriptor method descriptor
+     * @param signature  generic method signature, can be <code>null</code> when not available
+     * @return internal name of the enum class, <code>null</code> when it cannot be determined
+     */
+    @Nullable
+    private static String getFactoryTarget(String descriptor, @Nullable String signature) {
+        Type returnType = Type.getReturnType(descriptor);
+        if (returnType.getSort() != Type.OBJECT) {
+            return null;
+        } else if (!returnType.getInternalName().equals(ENUM_REF)) {
+            return returnType.getInternalName();
+        } else if (signature == null) {
+            return null;
+        }
+        String[] target = new String[1];
+        new SignatureReader(signature).accept(new SignatureVisitor(Opcodes.ASM9) {
+
+            @Override
+            public SignatureVisitor visitReturnType() {
+                return new SignatureVisitor(Opcodes.ASM9) {
+
+                    @Override
+                    public SignatureVisitor visitTypeArgument(char wildcard) {
+                        return new SignatureVisitor(Opcodes.ASM9) {
+
+                            @Override
+                            public void visitClassType(String name) {
+                                if (target[0] == null) {
+                                    target[0] = name;
+                                }
+                            }
+                        };
+                    }
+                };
+            }
+        });
+        return target[0];
+    }
+
+    private static final class ScanningClassVisitor extends ClassVisitor {
+        private final JarResult jarResult;
+        private String owner;
+        private boolean builtInEnumFactories;
+
+        ScanningClassVisitor(JarResult jarResult) {
+            super(Opcodes.ASM9);
+            this.jarResult = jarResult;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.owner = name;
+            this.builtInEnumFactories = name.equals(BUILT_IN_ENUM_FACTORIES);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (this.builtInEnumFactories && (access & Opcodes.ACC_ABSTRACT) != 0) {
+                String target = getFactoryTarget(descriptor, signature);
+                if (target != null) {
+                    this.jarResult.targets().add(target);
+                }
+            }
+            return new ScanningMethodVisitor(this.jarResult, this.owner, name + descriptor);
+        }
+    }
+
+    private static final class ScanningMethodVisitor extends MethodVisitor {
+        private final JarResult jarResult;
+        private final String owner;
+        private final String method;
+        /**
+         * class constants loaded since the last method call, the first one is the enum class for calls to enum appenders
+         */
+        private final List<String> classConstants = new ArrayList<>();
+        private final Set<SwitchUse> switchUses = new LinkedHashSet<>();
+        private boolean throwsSwitchException;
+        @Nullable
+        private String valuesEnumName;
+
+        ScanningMethodVisitor(JarResult jarResult, String owner, String method) {
+            super(Opcodes.ASM9);
+            this.jarResult = jarResult;
+            this.owner = owner;
+            this.method = method;
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            if (value instanceof Type type && type.getSort() == Type.OBJECT) {
+                this.classConstants.add(type.getInternalName());
+            }
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            if (opcode == Opcodes.NEW && SWITCH_EXCEPTIONS.contains(type)) {
+                this.throwsSwitchException = true;
+            }
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String methodOwner, String name, String descriptor, boolean isInterface) {
+            if (methodOwner.equals(BUILT_IN_ENUM_FACTORIES)) {
+                // the erased descriptor of a call site cannot tell which enum a lazy reference is for, those are covered by the factory declaration
+                String target = getFactoryTarget(descriptor, null);
+                if (target != null) {
+                    this.jarResult.targets().add(target);
+                }
+            } else if (ENUM_APPENDERS.contains(methodOwner) && !this.classConstants.isEmpty()) {
+                this.jarResult.targets().add(this.classConstants.get(0));
+            }
+            // javac's switch map initialization
+            if (opcode == Opcodes.INVOKESTATIC && name.equals("values") && descriptor.equals("()[L" + methodOwner + ";")) {
+                this.valuesEnumName = methodOwner;
+            } else {
+                this.valuesEnumName = null;
+            }
+            this.classConstants.clear();
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String fieldOwner, String name, String descriptor) {
+            if (descriptor.equals("[I")) {
+                if (opcode == Opcodes.PUTSTATIC && this.valuesEnumName != null && fieldOwner.equals(this.owner) && this.method.startsWith("<clinit>")) {
+                    this.jarResult.switchMapFields().add(new SwitchMapField(fieldOwner, name, this.valuesEnumName));
+                } else if (opcode == Opcodes.GETSTATIC && !(fieldOwner.equals(this.owner) && this.method.startsWith("<clinit>"))) {
+                    this.switchUses.add(new SwitchUse(this.owner, this.method, new SwitchMapField(fieldOwner, name), null, "switch_map", false));
+                }
+            }
+            this.valuesEnumName = null;
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            if (bootstrapMethodHandle.getOwner().equals(SWITCH_BOOTSTRAPS)) {
+                if (bootstrapMethodHandle.getName().equals("enumSwitch")) {
+                    this.switchUses.add(new SwitchUse(this.owner, this.method, null, Type.getArgumentTypes(descriptor)[0].getInternalName(), "enum_switch", false));
+                } else if (bootstrapMethodHandle.getName().equals("typeSwitch")) {
+                    Set<String> enumNames = new TreeSet<>();
+                    collectEnumDescriptors(bootstrapMethodArguments, enumNames);
+                    for (String enumName : enumNames) {
+                        this.switchUses.add(new SwitchUse(this.owner, this.method, null, enumName, "type_switch", false));
+                    }
+                }
+            }
+            this.classConstants.clear();
+        }
+
+        @Override
+        public void visitEnd() {
+            for (SwitchUse switchUse : this.switchUses) {
+                this.jarResult.switchUses().add(this.throwsSwitchException ? switchUse.asExhaustive() : switchUse);
+            }
+        }
+
+        /**
+         * enum constant labels are dynamic constants created from <code>EnumDesc.of(ClassDesc.of(binaryName), name)</code>
+         */
+        private static void collectEnumDescriptors(Object[] bootstrapMethodArguments, Set<String> enumNames) {
+            for (Object argument : bootstrapMethodArguments) {
+                if (argument instanceof ConstantDynamic enumDesc && enumDesc.getDescriptor().equals("Ljava/lang/Enum$EnumDesc;")) {
+                    for (int i = 0; i < enumDesc.getBootstrapMethodArgumentCount(); i++) {
+                        if (enumDesc.getBootstrapMethodArgument(i) instanceof ConstantDynamic classDesc && classDesc.getBootstrapMethodArgumentCount() == 2 && classDesc.getBootstrapMethodArgument(0) instanceof Handle handle && classDesc.getBootstrapMethodArgument(1) instanceof String string) {
+                            if (handle.getName().equals("of")) {
+                                enumNames.add(string.replace('.', '/'));
+                            } else if (handle.getName().equals("ofDescriptor") && string.startsWith("L") && string.endsWith(";")) {
+                                enumNames.add(string.substring(1, string.length() - 1));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * switch map fields and uses are collected per jar and only matched up after all jars are done
+     *
+     * @param failure why the jar could not be scanned, <code>null</code> when scanning succeeded
+     */
+    private record JarResult(Path jar, Set<String> targets, List<SwitchMapField> switchMapFields, List<SwitchUse> switchUses, @Nullable String failure) {
+
+    }
+
+    /**
+     * @param enumName <code>null</code> when used as a key
+     */
+    private record SwitchMapField(String owner, String name, @Nullable String enumName) {
+
+        SwitchMapField(String owner, String name) {
+            this(owner, name, null);
+        }
+    }
+
+    private record SwitchUse(String owner, String method, @Nullable SwitchMapField switchMapField, @Nullable String enumName, String kind, boolean exhaustive) {
+
+        SwitchUse asExhaustive() {
+            return new SwitchUse(this.owner, this.method, this.switchMapField, this.enumName, this.kind, true);
+        }
+    }
+
+    /**
+     * a single switch over an extended enum
+     *
+     * @param jar        file name of the jar
+     * @param owner      internal name of the class containing the switch
+     * @param method     method name and descriptor
+     * @param enumName   internal name of the extended enum
+     * @param kind       <code>switch_map</code> for javac's classic enum switches, <code>enum_switch</code> and <code>type_switch</code> for invokedynamic switches
+     * @param exhaustive does the method throw when no case matches, which javac generates for switch expressions without a default branch
+     */
+    public record Hazard(String jar, String owner, String method, String enumName, String kind, boolean exhaustive) {
+
+    }
+
+    /**
+     * a jar that could not be scanned
+     *
+     * @param jar     file name of the jar
+     * @param message what went wrong
+     */
+    public record Failure(String jar, String message) {
+
+    }
+
+    /**
+     * @param jars     number of scanned jars, including failed ones
+     * @param targets  internal names of all extended enums
+     * @param hazards  all switches over extended enums
+     * @param failures all jars that could not be scanned
+     */
+    public record Report(int jars, Collection<String> targets, List<Hazard> hazards, List<Failure> failures) {
+
+        public void write(Path reportFile) throws IOException {
+            Path parent = reportFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+                writer.write("{\n  \"jars\": " + this.jars + ",\n  \"targets\": [");
+                int index = 0;
+                for (String target : this.targets) {
+                    writer.write((index++ == 0 ? "" : ", ") + quote(target));
+                }
+                writer.write("],\n  \"hazards\": [");
+                index = 0;
+                for (Hazard hazard : this.hazards) {
+                    writer.write(index++ == 0 ? "\n" : ",\n");
+                    writer.write("    {\"jar\": %s, \"class\": %s, \"method\": %s, \"enum\": %s, \"kind\": %s, \"exhaustive\": %s}".formatted(quote(hazard.jar()), quote(hazard.owner()), quote(hazard.method()), quote(hazard.enumName()), quote(hazard.kind()), hazard.exhaustive()));
+                }
+                writer.write(this.hazards.isEmpty() ? "],\n  \"failures\": [" : "\n  ],\n  \"failures\": [");
+                index = 0;
+                for (Failure failure : this.failures) {
+                    writer.write(index++ == 0 ? "\n" : ",\n");
+                    writer.write("    {\"jar\": %s, \"message\": %s}".formatted(quote(failure.jar()), quote(failure.message())));
+                }
+                writer.write(this.failures.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+            }
+        }
+
+        private static String quote(String value) {
+            StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    builder.append('\\').append(c);
+                } else if (c < 0x20) {
+                    builder.append("\\u%04x".formatted((int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.append('"').toString();
+        }
+    }
+}
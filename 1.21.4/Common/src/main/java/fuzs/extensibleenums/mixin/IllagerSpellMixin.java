@@ -0,0 +1,17 @@
+package fuzs.extensibleenums.mixin;
+
+import fuzs.extensibleenums.api.v2.core.DeferredEnumExtensions;
+import net.minecraft.world.entity.monster.SpellcasterIllager;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(SpellcasterIllager.IllagerSpell.class)
+abstract class IllagerSpellMixin {
+
+    @Inject(method = "<clinit>", at = @At("TAIL"))
+    private static void clinit(CallbackInfo callback) {
+        DeferredEnumExtensions.onClassInitialized(SpellcasterIllager.IllagerSpell.class);
+    }
+}
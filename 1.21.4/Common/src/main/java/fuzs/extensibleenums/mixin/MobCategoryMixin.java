@@ -0,0 +1,17 @@
+package fuzs.extensibleenums.mixin;
+
+import fuzs.extensibleenums.api.v2.core.DeferredEnumExtensions;
+import net.minecraft.world.entity.MobCategory;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(MobCategory.class)
+abstract class MobCategoryMixin {
+
+    @Inject(method = "<clinit>", at = @At("TAIL"))
+    private static void clinit(CallbackInfo callback) {
+        DeferredEnumExtensions.onClassInitialized(MobCategory.class);
+    }
+}
@@ -0,0 +1,17 @@
+package fuzs.extensibleenums.mixin;
+
+import fuzs.extensibleenums.api.v2.core.DeferredEnumExtensions;
+import net.minecraft.world.item.Rarity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Rarity.class)
+abstract class RarityMixin {
+
+    @Inject(method = "<clinit>", at = @At("TAIL"))
+    private static void clinit(CallbackInfo callback) {
+        DeferredEnumExtensions.onClassInitialized(Rarity.class);
+    }
+}
@@ -0,0 +1,4 @@
+@ApiStatus.Internal
+package fuzs.extensibleenums.mixin;
+
+import org.jetbrains.annotations.ApiStatus;
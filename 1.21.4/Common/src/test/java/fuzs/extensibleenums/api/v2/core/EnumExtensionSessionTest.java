@@ -0,0 +1,69 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnumExtensionSessionTest {
+
+    @Test
+    void reservedConstantsOutliveClassInitialization() {
+        AtomicReference<String> value = new AtomicReference<>();
+        AtomicInteger factoryCalls = new AtomicInteger();
+        EnumRef<Reserved> enumRef = EnumExtensionSession.reserve(Reserved.class, "ADDED", () -> {
+            factoryCalls.incrementAndGet();
+            // stands in for a registry entry that only exists after registration
+            return EnumAppender.create(Reserved.class, String.class).addEnumConstant("ADDED", Objects.requireNonNull(value.get(), "value is null"));
+        }, (Reserved enumConstant) -> {
+            // NO-OP
+        });
+        // the game initializing the enum class must not resolve arguments yet
+        assertEquals("first", Reserved.FIRST.value);
+        assertTrue(DeferredEnumExtensions.isInitialized(Reserved.class));
+        assertFalse(enumRef.isMaterialized());
+        assertEquals(0, factoryCalls.get());
+        value.set("added");
+        Reserved enumConstant = enumRef.get();
+        assertEquals("ADDED", enumConstant.name());
+        assertEquals("added", enumConstant.value);
+        assertEquals(1, factoryCalls.get());
+    }
+
+    @Test
+    void submittedConstantsAreAddedOnClassInitialization() {
+        DeferredEnumConstants<Submitted> deferredEnumConstants = EnumExtensionSession.submit(EnumAppender.create(Submitted.class).addEnumConstant("ADDED"));
+        assertFalse(deferredEnumConstants.isResolved());
+        assertEquals(2, Submitted.values().length);
+        assertTrue(deferredEnumConstants.isResolved());
+        assertEquals(Submitted.values()[1], deferredEnumConstants.get("ADDED"));
+    }
+
+    public enum Reserved {
+        FIRST("first");
+
+        static {
+            // what the mixins do at the end of the static initializer
+            DeferredEnumExtensions.onClassInitialized(Reserved.class);
+        }
+
+        private final String value;
+
+        Reserved(String value) {
+            this.value = value;
+        }
+    }
+
+    public enum Submitted {
+        FIRST;
+
+        static {
+            DeferredEnumExtensions.onClassInitialized(Submitted.class);
+        }
+    }
+}
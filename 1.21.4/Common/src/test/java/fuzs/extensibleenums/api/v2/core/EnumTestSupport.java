@@ -0,0 +1,59 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * shared fixtures for tests growing enum classes at runtime, appended constants stay for the rest of the test run,
+ * so a test needing a specific number of constants has to go through {@link #appendEnumConstants(Class, int)}
+ */
+final class EnumTestSupport {
+
+    private EnumTestSupport() {
+        // NO-OP
+    }
+
+    /**
+     * append constants to an enum class until it has <code>size</code> constants in total
+     * <p>the current constants are read through the construction plan, as {@link Class#getEnumConstants()} would fill the cache
+     * that makes every append afterward count as late
+     *
+     * @param enumClazz the enum class
+     * @param size      number of constants the enum class should have afterward
+     * @param <E>       type of enum constant
+     * @return all constants of the enum class
+     */
+    static <E extends Enum<E>> E[] appendEnumConstants(Class<E> enumClazz, int size) {
+        EnumConstructionPlan<E> plan = EnumConstructionPlan.of(enumClazz);
+        EnumAppender<E> enumAppender = EnumAppender.create(enumClazz);
+        for (int i = plan.values().length; i < size; i++) {
+            enumAppender.addEnumConstant("APPENDED_" + i);
+        }
+        if (!enumAppender.enumConstantNames().isEmpty()) {
+            enumAppender.applyTo();
+        }
+        E[] enumConstants = plan.values();
+        assertEquals(size, enumConstants.length);
+        return enumConstants;
+    }
+
+    /**
+     * grown to one constant short of a full word
+     */
+    public enum Size63 {
+        FIRST
+    }
+
+    /**
+     * grown to exactly one full word
+     */
+    public enum Size64 {
+        FIRST
+    }
+
+    /**
+     * grown one constant past a full word in a single append
+     */
+    public enum Size65 {
+        FIRST
+    }
+}
@@ -0,0 +1,81 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtensibleEnumMapTest {
+
+    @Test
+    void holdsAllConstantsAroundWordSize() {
+        assertHoldsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size63.class, 63));
+        assertHoldsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size64.class, 64));
+        assertHoldsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size65.class, 65));
+    }
+
+    @Test
+    void growsAfterAppend() {
+        // past 64 constants right away, so the append afterward is not a concern for EnumSet
+        Grown[] enumConstants = EnumTestSupport.appendEnumConstants(Grown.class, 65);
+        ExtensibleEnumMap<Grown, String> map = new ExtensibleEnumMap<>(Grown.class);
+        map.put(enumConstants[0], "first");
+        map.put(enumConstants[64], null);
+        Grown enumConstant = EnumTestSupport.appendEnumConstants(Grown.class, 66)[65];
+        assertFalse(map.containsKey(enumConstant));
+        assertNull(map.get(enumConstant));
+        assertNull(map.put(enumConstant, "added"));
+        assertEquals("added", map.get(enumConstant));
+        assertTrue(map.containsKey(enumConstants[64]));
+        assertEquals(3, map.size());
+        assertEquals(List.of(enumConstants[0], enumConstants[64], enumConstant), new ArrayList<>(map.keySet()));
+        assertEquals("added", map.remove(enumConstant));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void copiesOnlyMappedConstants() {
+        Copied[] enumConstants = EnumTestSupport.appendEnumConstants(Copied.class, 65);
+        ExtensibleEnumMap<Copied, Integer> map = new ExtensibleEnumMap<>(Copied.class);
+        map.put(enumConstants[1], 1);
+        map.put(enumConstants[64], 64);
+        ExtensibleEnumMap<Copied, Integer> copy = new ExtensibleEnumMap<>(map);
+        assertEquals(map, copy);
+        copy.remove(enumConstants[1]);
+        assertEquals(Map.of(enumConstants[64], 64), copy);
+        assertEquals(2, map.size());
+    }
+
+    private static <E extends Enum<E>> void assertHoldsAllConstants(E[] enumConstants) {
+        @SuppressWarnings("unchecked") Class<E> enumClazz = (Class<E>) enumConstants.getClass().getComponentType();
+        ExtensibleEnumMap<E, Integer> map = new ExtensibleEnumMap<>(enumClazz);
+        for (int i = enumConstants.length - 1; i >= 0; i--) {
+            assertNull(map.put(enumConstants[i], i));
+        }
+        assertEquals(enumConstants.length, map.size());
+        // iteration follows ordinals, not insertion order
+        assertEquals(Arrays.asList(enumConstants), new ArrayList<>(map.keySet()));
+        for (E enumConstant : enumConstants) {
+            assertEquals(enumConstant.ordinal(), map.get(enumConstant));
+        }
+        map.entrySet().removeIf((Map.Entry<E, Integer> entry) -> entry.getValue() % 2 == 0);
+        assertEquals(enumConstants.length / 2, map.size());
+        assertFalse(map.containsKey(enumConstants[0]));
+        assertTrue(map.containsKey(enumConstants[1]));
+    }
+
+    public enum Grown {
+        FIRST
+    }
+
+    public enum Copied {
+        FIRST
+    }
+}
@@ -0,0 +1,85 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtensibleEnumSetTest {
+
+    @Test
+    void allOfAroundWordSize() {
+        assertContainsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size63.class, 63));
+        assertContainsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size64.class, 64));
+        assertContainsAllConstants(EnumTestSupport.appendEnumConstants(EnumTestSupport.Size65.class, 65));
+    }
+
+    @Test
+    void iteratesAcrossWordBoundaries() {
+        Boundary[] enumConstants = EnumTestSupport.appendEnumConstants(Boundary.class, 130);
+        ExtensibleEnumSet<Boundary> set = ExtensibleEnumSet.of(enumConstants[129], enumConstants[0], enumConstants[63], enumConstants[64], enumConstants[127], enumConstants[128]);
+        assertEquals(List.of(enumConstants[0], enumConstants[63], enumConstants[64], enumConstants[127], enumConstants[128], enumConstants[129]), new ArrayList<>(set));
+        for (Iterator<Boundary> iterator = set.iterator(); iterator.hasNext(); ) {
+            Boundary enumConstant = iterator.next();
+            if (enumConstant.ordinal() == 63 || enumConstant.ordinal() == 128) {
+                iterator.remove();
+            }
+        }
+        assertEquals(List.of(enumConstants[0], enumConstants[64], enumConstants[127], enumConstants[129]), new ArrayList<>(set));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    void growsAfterAppend() {
+        // past the first word right away, so the append afterward is not a concern for EnumSet
+        Grown[] enumConstants = EnumTestSupport.appendEnumConstants(Grown.class, 128);
+        ExtensibleEnumSet<Grown> allOf = ExtensibleEnumSet.allOf(Grown.class);
+        ExtensibleEnumSet<Grown> set = ExtensibleEnumSet.noneOf(Grown.class);
+        set.add(enumConstants[127]);
+        Grown enumConstant = EnumTestSupport.appendEnumConstants(Grown.class, 129)[128];
+        // sets only contain what was present or added, never constants appended afterward
+        assertFalse(allOf.contains(enumConstant));
+        assertEquals(128, allOf.size());
+        assertTrue(set.add(enumConstant));
+        assertTrue(set.contains(enumConstant));
+        assertEquals(List.of(enumConstants[127], enumConstant), new ArrayList<>(set));
+        allOf.add(enumConstant);
+        assertEquals(ExtensibleEnumSet.allOf(Grown.class), allOf);
+        assertTrue(allOf.containsAll(set));
+        allOf.removeAll(set);
+        assertEquals(127, allOf.size());
+        assertFalse(allOf.contains(enumConstant));
+        assertTrue(set.remove(enumConstant));
+        assertEquals(ExtensibleEnumSet.of(enumConstants[127]), set);
+    }
+
+    private static <E extends Enum<E>> void assertContainsAllConstants(E[] enumConstants) {
+        @SuppressWarnings("unchecked") Class<E> enumClazz = (Class<E>) enumConstants.getClass().getComponentType();
+        ExtensibleEnumSet<E> set = ExtensibleEnumSet.allOf(enumClazz);
+        // no bits may be set past the last constant
+        assertEquals(enumConstants.length, set.size());
+        assertEquals(Arrays.asList(enumConstants), new ArrayList<>(set));
+        for (E enumConstant : enumConstants) {
+            assertTrue(set.contains(enumConstant));
+        }
+        ExtensibleEnumSet<E> noneOf = ExtensibleEnumSet.noneOf(enumClazz);
+        assertTrue(noneOf.addAll(set));
+        assertEquals(set, noneOf);
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    public enum Boundary {
+        FIRST
+    }
+
+    public enum Grown {
+        FIRST
+    }
+}
@@ -0,0 +1,41 @@
+package fuzs.extensibleenums.api.v2.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnsafeExtensibleEnumTest {
+
+    @Test
+    void enumSetBoundaryIsFineBeforeValuesAreUsed() {
+        UnsafeExtensibleEnum.ensureInitialized(Unused.class);
+        // no enum set can exist yet, so even strict mode lets the enum class grow past 64 constants
+        assertDoesNotThrow(() -> UnsafeExtensibleEnum.testEnumSetBoundary(Unused.class, List.of("ADDED"), true));
+        assertEquals(65, EnumTestSupport.appendEnumConstants(Unused.class, 65).length);
+    }
+
+    @Test
+    void enumSetBoundaryIsReportedAfterValuesAreUsed() {
+        UnsafeExtensibleEnum.ensureInitialized(Used.class);
+        // what EnumSet does for getting its universe
+        Used.class.getEnumConstants();
+        assertDoesNotThrow(() -> UnsafeExtensibleEnum.testEnumSetBoundary(Used.class, List.of("ADDED"), false));
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            UnsafeExtensibleEnum.testEnumSetBoundary(Used.class, List.of("ADDED"), true);
+        });
+        assertTrue(exception.getMessage().contains(Used.class.getName()));
+    }
+
+    public enum Unused {
+        FIRST
+    }
+
+    public enum Used {
+        FIRST
+    }
+}
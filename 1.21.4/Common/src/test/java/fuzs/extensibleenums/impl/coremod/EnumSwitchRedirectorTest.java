@@ -0,0 +1,124 @@
+package fuzs.extensibleenums.impl.coremod;
+
+import fuzs.extensibleenums.api.v2.core.EnumAppender;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnumSwitchRedirectorTest {
+    /**
+     * never referenced directly, the redirected copy is defined in its own class loader as junit loads nested classes of the test
+     */
+    private static final String SWITCH_USER = EnumSwitchRedirectorTest.class.getName() + "$SwitchUser";
+
+    @Test
+    void transformRedirectsSwitchBootstraps() throws IOException {
+        ClassNode classNode = readClass(SWITCH_USER);
+        assertTrue(EnumSwitchRedirector.transform(classNode));
+        for (MethodNode methodNode : classNode.methods) {
+            for (AbstractInsnNode insnNode : methodNode.instructions) {
+                if (insnNode instanceof InvokeDynamicInsnNode invokeDynamicInsnNode) {
+                    assertEquals("fuzs/extensibleenums/api/v2/core/EnumSwitchBootstraps", invokeDynamicInsnNode.bsm.getOwner());
+                }
+            }
+        }
+        assertFalse(EnumSwitchRedirector.transform(classNode));
+    }
+
+    @Test
+    void findSwitchUsersScansClassDirectories() throws IOException, URISyntaxException {
+        Path path = Path.of(EnumSwitchRedirectorTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Set<String> switchUsers = EnumSwitchRedirector.findSwitchUsers(List.of(path), null);
+        assertTrue(switchUsers.contains(SWITCH_USER));
+        assertFalse(switchUsers.contains(Color.class.getName()));
+    }
+
+    @Test
+    void redirectedSwitchesHandleAddedConstants() throws ReflectiveOperationException, IOException {
+        ClassNode classNode = readClass(SWITCH_USER);
+        EnumSwitchRedirector.transform(classNode);
+        ClassWriter classWriter = new ClassWriter(0);
+        classNode.accept(classWriter);
+        Class<?> switchUser = new RedirectedClassLoader(EnumSwitchRedirectorTest.class.getClassLoader()).define(SWITCH_USER, classWriter.toByteArray());
+        Method describeColor = switchUser.getDeclaredMethod("describeColor", Color.class);
+        Method describeObject = switchUser.getDeclaredMethod("describeObject", Object.class);
+        // link both call sites before any constant is added
+        assertEquals("red", describeColor.invoke(null, Color.RED));
+        assertEquals("red", describeObject.invoke(null, Color.RED));
+        EnumAppender.builder(Color.class).template(Color.GREEN).build().addEnumConstant("TEAL").applyTo();
+        EnumAppender.create(Color.class).addEnumConstant("PLAIN").applyTo();
+        Color teal = Color.valueOf("TEAL");
+        Color plain = Color.valueOf("PLAIN");
+        assertEquals("green", describeColor.invoke(null, teal));
+        assertEquals("other", describeColor.invoke(null, plain));
+        assertEquals("none", describeColor.invoke(null, (Object) null));
+        assertEquals("green", describeObject.invoke(null, teal));
+        assertEquals("color", describeObject.invoke(null, plain));
+        assertEquals("color", describeObject.invoke(null, Color.BLUE));
+        assertEquals("string", describeObject.invoke(null, "blue"));
+    }
+
+    private static ClassNode readClass(String className) throws IOException {
+        try (InputStream inputStream = EnumSwitchRedirectorTest.class.getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class")) {
+            ClassNode classNode = new ClassNode();
+            new ClassReader(inputStream.readAllBytes()).accept(classNode, 0);
+            return classNode;
+        }
+    }
+
+    private static final class RedirectedClassLoader extends ClassLoader {
+
+        RedirectedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] classBytes) {
+            return this.defineClass(className, classBytes, 0, classBytes.length);
+        }
+    }
+
+    public enum Color {
+        RED,
+        GREEN,
+        BLUE
+    }
+
+    public static final class SwitchUser {
+
+        public static String describeColor(Color color) {
+            // the null label makes javac 21 use an invokedynamic enum switch instead of a switch map
+            return switch (color) {
+                case null -> "none";
+                case RED -> "red";
+                case GREEN -> "green";
+                default -> "other";
+            };
+        }
+
+        public static String describeObject(Object object) {
+            return switch (object) {
+                case Color.RED -> "red";
+                case Color.GREEN -> "green";
+                case Color color -> "color";
+                case String string -> "string";
+                default -> "other";
+            };
+        }
+    }
+}
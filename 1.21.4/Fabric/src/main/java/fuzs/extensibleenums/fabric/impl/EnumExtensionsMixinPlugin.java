@@ -0,0 +1,87 @@
+package fuzs.extensibleenums.fabric.impl;
+
+import fuzs.extensibleenums.impl.ExtensibleEnums;
+import fuzs.extensibleenums.impl.extension.EnumExtensions;
+import fuzs.extensibleenums.impl.extension.EnumExtensionTransformer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.MappingResolver;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.metadata.CustomValue;
+import org.objectweb.asm.tree.ClassNode;
+import org.spongepowered.asm.mixin.extensibility.IMixinConfigPlugin;
+import org.spongepowered.asm.mixin.extensibility.IMixinInfo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * adds enum constants declared in enum extension manifests to enum classes while they are being loaded, so no {@link sun.misc.Unsafe} is involved at runtime
+ * <p>mods declare a manifest in their <code>fabric.mod.json</code>:
+ * <pre>{@code
+ * "custom": {
+ *   "extensibleenums:enum_extensions": "META-INF/enumextensions.json"
+ * }
+ * }</pre>
+ * class names in the manifest use intermediary mappings, static field and method references must point to classes from the declaring mod
+ * <p>fabric offers no general class transformer, so only enum classes with a carrier mixin in <code>fabric.mixin</code> can be extended this way
+ */
+public final class EnumExtensionsMixinPlugin implements IMixinConfigPlugin {
+    public static final String ENUM_EXTENSIONS_KEY = ExtensibleEnums.MOD_ID + ":enum_extensions";
+
+    @Override
+    public void onLoad(String mixinPackage) {
+        // mixin configs are loaded after mod discovery but before any game class, which is just what we need
+        MappingResolver mappingResolver = FabricLoader.getInstance().getMappingResolver();
+        for (ModContainer modContainer : FabricLoader.getInstance().getAllMods()) {
+            CustomValue customValue = modContainer.getMetadata().getCustomValue(ENUM_EXTENSIONS_KEY);
+            if (customValue == null) continue;
+            String modId = modContainer.getMetadata().getId();
+            Optional<Path> path = modContainer.findPath(customValue.getAsString());
+            if (path.isEmpty()) {
+                throw new IllegalStateException("Missing enum extensions manifest %s from mod %s".formatted(customValue.getAsString(), modId));
+            }
+            try (Reader reader = Files.newBufferedReader(path.get())) {
+                EnumExtensions.register(EnumExtensions.readManifest(modId, reader, (String internalName) -> {
+                    return mappingResolver.mapClassName("intermediary", internalName.replace('/', '.')).replace('.', '/');
+                }));
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException("Failed to read enum extensions manifest from mod %s".formatted(modId), e);
+            }
+        }
+    }
+
+    @Override
+    public String getRefMapperConfig() {
+        return null;
+    }
+
+    @Override
+    public boolean shouldApplyMixin(String targetClassName, String mixinClassName) {
+        return true;
+    }
+
+    @Override
+    public void acceptTargets(Set<String> myTargets, Set<String> otherTargets) {
+        // NO-OP
+    }
+
+    @Override
+    public List<String> getMixins() {
+        return null;
+    }
+
+    @Override
+    public void preApply(String targetClassName, ClassNode targetClass, String mixinClassName, IMixinInfo mixinInfo) {
+        // NO-OP
+    }
+
+    @Override
+    public void postApply(String targetClassName, ClassNode targetClass, String mixinClassName, IMixinInfo mixinInfo) {
+        EnumExtensionTransformer.transform(targetClass, EnumExtensions.getEntries(targetClass.name));
+    }
+}
@@ -0,0 +1,30 @@
+package fuzs.extensibleenums.fabric.impl;
+
+import fuzs.extensibleenums.impl.ExtensibleEnums;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.entrypoint.PreLaunchEntrypoint;
+import net.fabricmc.loader.api.metadata.ModOrigin;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExtensibleEnumsFabricPreLaunch implements PreLaunchEntrypoint {
+
+    @Override
+    public void onPreLaunch() {
+        // runs before any mod initializer, so the index is available for all additions
+        List<Path> paths = new ArrayList<>();
+        for (ModContainer modContainer : FabricLoader.getInstance().getAllMods()) {
+            if (modContainer.getOrigin().getKind() == ModOrigin.Kind.PATH) {
+                paths.addAll(modContainer.getOrigin().getPaths());
+            }
+        }
+        // there is no point after all mods have been initialized to wait at, so the index is always built right away
+        ExtensibleEnums.installSwitchMapIndex(paths, FabricLoader.getInstance().getGameDir());
+        if (ExtensibleEnums.BACKGROUND_PREPARATION) {
+            ExtensibleEnums.enableBackgroundPreparation();
+        }
+    }
+}
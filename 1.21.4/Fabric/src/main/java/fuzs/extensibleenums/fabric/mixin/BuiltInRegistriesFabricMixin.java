@@ -0,0 +1,18 @@
+package fuzs.extensibleenums.fabric.mixin;
+
+import fuzs.extensibleenums.api.v2.core.EnumExtensionSession;
+import net.minecraft.core.registries.BuiltInRegistries;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// Fabric has no event for this, built-in registries are frozen once after all mods have been initialized and registered their content
+@Mixin(BuiltInRegistries.class)
+abstract class BuiltInRegistriesFabricMixin {
+
+    @Inject(method = "freeze", at = @At("HEAD"))
+    private static void freeze(CallbackInfo callback) {
+        EnumExtensionSession.commit();
+    }
+}
@@ -0,0 +1,10 @@
+package fuzs.extensibleenums.fabric.mixin;
+
+import net.minecraft.world.entity.MobCategory;
+import org.spongepowered.asm.mixin.Mixin;
+
+// carrier for enum extensions added in EnumExtensionsMixinPlugin, must stay empty
+@Mixin(MobCategory.class)
+abstract class MobCategoryFabricMixin {
+
+}
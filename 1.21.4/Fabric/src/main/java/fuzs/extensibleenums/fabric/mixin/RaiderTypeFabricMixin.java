@@ -0,0 +1,10 @@
+package fuzs.extensibleenums.fabric.mixin;
+
+import net.minecraft.world.entity.raid.Raid;
+import org.spongepowered.asm.mixin.Mixin;
+
+// carrier for enum extensions added in EnumExtensionsMixinPlugin, must stay empty
+@Mixin(Raid.RaiderType.class)
+abstract class RaiderTypeFabricMixin {
+
+}
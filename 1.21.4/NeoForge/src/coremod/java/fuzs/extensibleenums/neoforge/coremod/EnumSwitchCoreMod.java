@@ -0,0 +1,79 @@
+package fuzs.extensibleenums.neoforge.coremod;
+
+import cpw.mods.modlauncher.api.ITransformer;
+import cpw.mods.modlauncher.api.ITransformerVotingContext;
+import cpw.mods.modlauncher.api.TargetType;
+import cpw.mods.modlauncher.api.TransformerVoteResult;
+import fuzs.extensibleenums.impl.coremod.EnumSwitchRedirector;
+import net.neoforged.fml.loading.FMLLoader;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforgespi.coremod.ICoreMod;
+import net.neoforged.neoforgespi.language.IModFileInfo;
+import net.neoforged.neoforgespi.locating.IModFile;
+import org.objectweb.asm.tree.ClassNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * redirects invokedynamic switches in all mod files to {@link fuzs.extensibleenums.api.v2.core.EnumSwitchBootstraps} while classes are being loaded,
+ * classes to transform are found by scanning mod files once, results are cached for unchanged files
+ * <p>coremods are loaded before any mod, so this is shipped as a separate library jar nested in the mod jar,
+ * it must not touch any class from the mod itself apart from {@link EnumSwitchRedirector}, which is packaged with it
+ */
+public final class EnumSwitchCoreMod implements ICoreMod {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnumSwitchCoreMod.class);
+
+    @Override
+    public Iterable<? extends ITransformer<?>> getTransformers() {
+        long startTime = System.nanoTime();
+        List<Path> paths = FMLLoader.getLoadingModList()
+                .getModFiles()
+                .stream()
+                .map(IModFileInfo::getFile)
+                .map(IModFile::getFilePath)
+                .toList();
+        Set<String> classNames;
+        try {
+            Path cacheFile = FMLPaths.GAMEDIR.get().resolve(".cache").resolve("extensibleenums").resolve("switch_users.txt");
+            classNames = EnumSwitchRedirector.findSwitchUsers(paths, cacheFile);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to scan mod files for switches, added enum constants may take the wrong branch in invokedynamic switches", e);
+            return List.of();
+        }
+        LOGGER.debug("Found {} classes with invokedynamic switches in {} mod files in {} ms", classNames.size(), paths.size(), (System.nanoTime() - startTime) / 1_000_000L);
+        return classNames.isEmpty() ? List.of() : List.of(new EnumSwitchTransformer(classNames));
+    }
+
+    /**
+     * @param classNames binary names of all classes to transform
+     */
+    private record EnumSwitchTransformer(Set<String> classNames) implements ITransformer<ClassNode> {
+
+        @Override
+        public ClassNode transform(ClassNode input, ITransformerVotingContext context) {
+            EnumSwitchRedirector.transform(input);
+            return input;
+        }
+
+        @Override
+        public TransformerVoteResult castVote(ITransformerVotingContext context) {
+            return TransformerVoteResult.YES;
+        }
+
+        @Override
+        public Set<Target<ClassNode>> targets() {
+            return this.classNames.stream().map(Target::targetClass).collect(Collectors.toSet());
+        }
+
+        @Override
+        public TargetType<ClassNode> getTargetType() {
+            return TargetType.CLASS;
+        }
+    }
+}
@@ -1,12 +1,51 @@
 package fuzs.extensibleenums.neoforge.impl;
 
+import fuzs.extensibleenums.api.v2.core.EnumExtensionSession;
 import fuzs.extensibleenums.impl.ExtensibleEnums;
+import fuzs.extensibleenums.impl.extension.EnumExtensionManifestWriter;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.ModList;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.neoforged.fml.loading.FMLEnvironment;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforgespi.language.IModFileInfo;
+import net.neoforged.neoforgespi.locating.IModFile;
+
+import java.nio.file.Path;
+import java.util.List;
 
 @Mod(ExtensibleEnums.MOD_ID)
 public class ExtensibleEnumsNeoForge {
 
-    public ExtensibleEnumsNeoForge() {
+    public ExtensibleEnumsNeoForge(IEventBus modEventBus) {
 //        ModConstructor.construct(ExtensibleEnums.MOD_ID, ExtensibleEnums::new);
+        List<Path> paths = ModList.get()
+                .getModFiles()
+                .stream()
+                .map(IModFileInfo::getFile)
+                .map(IModFile::getFilePath)
+                .toList();
+        if (ExtensibleEnums.BACKGROUND_PREPARATION) {
+            ExtensibleEnums.enableBackgroundPreparation();
+            // the commit during common setup waits for the index, so scanning overlaps with the construction of other mods
+            ExtensibleEnums.installSwitchMapIndexInBackground(paths, FMLPaths.GAMEDIR.get());
+        } else {
+            // mod constructors run in parallel, so this is not guaranteed to happen before other mods add enum constants
+            ExtensibleEnums.installSwitchMapIndex(paths, FMLPaths.GAMEDIR.get());
+        }
+        if (!FMLEnvironment.production) {
+            // help mods move their enum constants to NeoForge's enumExtensions, so they exist from class initialization
+            ExtensibleEnums.installEnumExtensionManifestWriter(FMLPaths.GAMEDIR.get());
+        }
+        // all registries have been populated by now, so lazy arguments like entity types from deferred registers can be resolved,
+        // commit whatever enum extensions have not been applied by class initialization or by requesting a constant yet
+        modEventBus.addListener((FMLCommonSetupEvent event) -> {
+            event.enqueueWork(() -> {
+                EnumExtensionSession.commit();
+                // write manifests for everything committed so far, without waiting for shutdown
+                EnumExtensionManifestWriter.flush();
+            });
+        });
     }
 }